@@ -0,0 +1,263 @@
+package com.wangguangwu.resttemplate.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import com.wangguangwu.resttemplate.dto.BatchRequest;
+import com.wangguangwu.resttemplate.dto.BatchResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.CompositeFilter;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 在服务端并行执行批量请求
+ * <p>
+ * 每个子请求依次经过应用注册的过滤器（如 DeadlineFilter、RequestDecompressionFilter）再交给 DispatcherServlet，
+ * 与单独调用时走同样的过滤器、HandlerMapping、参数解析、消息转换和异常处理；容器自身添加的过滤器不经过。
+ * 子请求的响应体缓存在内存中，不适合用来下载大文件。
+ * 子请求包装了外层的 request、response，超时的子请求被中断后仍要等它退出才返回，外层请求结束前不会再有子请求访问它们
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class BatchDispatcher implements DisposableBean {
+
+    /**
+     * 子请求上的标记，路径经过编码（如 /rest/%62atch、/rest;x=1/batch）后仍能映射到批量接口，不能只按路径判断嵌套
+     */
+    static final String SUB_REQUEST_ATTRIBUTE = BatchDispatcher.class.getName() + ".SUB_REQUEST";
+
+    private final DispatcherServlet dispatcherServlet;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 应用注册的过滤器，顺序与容器中的过滤器链一致
+     */
+    private final CompositeFilter filters = new CompositeFilter();
+
+    private final ExecutorService executor;
+
+    @Value("${rest.batch.max-requests:1000}")
+    int maxRequests;
+
+    @Value("${rest.batch.timeout:30s}")
+    Duration timeout;
+
+    public BatchDispatcher(DispatcherServlet dispatcherServlet, ObjectMapper objectMapper, ObjectProvider<Filter> filters,
+                           @Value("${rest.batch.threads:32}") int threads,
+                           @Value("${rest.batch.virtual-threads:${rest.server.virtual-threads:false}}") boolean virtualThreads) {
+        this.dispatcherServlet = dispatcherServlet;
+        this.objectMapper = objectMapper;
+        this.filters.setFilters(filters.orderedStream().collect(Collectors.toList()));
+        this.executor = ClientExecutors.newExecutor("rest-batch", threads, virtualThreads);
+    }
+
+    /**
+     * 并行执行所有子请求，按请求顺序返回结果
+     */
+    public List<BatchResponse> dispatch(List<BatchRequest> requests, HttpServletRequest request,
+                                        HttpServletResponse response) throws InterruptedException {
+        Assert.isTrue(request.getAttribute(SUB_REQUEST_ATTRIBUTE) == null, "不支持嵌套的批量请求");
+        Assert.isTrue(requests.size() <= maxRequests, "子请求数量超过上限: " + maxRequests);
+        for (BatchRequest batchRequest : requests) {
+            Assert.isTrue(StringUtils.hasText(batchRequest.getPath()) && batchRequest.getPath().startsWith("/"),
+                    "子请求路径不合法: " + batchRequest.getPath());
+        }
+        List<SubTask> tasks = new ArrayList<>(requests.size());
+        try {
+            for (BatchRequest batchRequest : requests) {
+                SubTask task = new SubTask(batchRequest, request, response);
+                tasks.add(task);
+                task.future = executor.submit(task);
+            }
+            long deadline = System.nanoTime() + timeout.toNanos();
+            List<BatchResponse> result = new ArrayList<>(tasks.size());
+            for (SubTask task : tasks) {
+                try {
+                    result.add(task.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException e) {
+                    result.add(error(HttpStatus.INTERNAL_SERVER_ERROR, e.getCause()));
+                } catch (TimeoutException e) {
+                    task.cancel();
+                    result.add(error(HttpStatus.GATEWAY_TIMEOUT, e));
+                }
+            }
+            return result;
+        } finally {
+            // 被取消的子请求可能仍在 DispatcherServlet 中执行，等它们退出后外层 request、response 才能交还容器
+            tasks.forEach(SubTask::cancel);
+            tasks.forEach(SubTask::awaitExit);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private BatchResponse execute(BatchRequest batchRequest, HttpServletRequest request,
+                                  HttpServletResponse response) throws JsonProcessingException {
+        HttpHeaders headers = new HttpHeaders();
+        if (batchRequest.getHeaders() != null) {
+            batchRequest.getHeaders().forEach(headers::set);
+        }
+        if (!headers.containsKey(HttpHeaders.ACCEPT)) {
+            headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.ALL));
+        }
+        byte[] body = new byte[0];
+        if (batchRequest.getBody() != null && !batchRequest.getBody().isNull()) {
+            body = objectMapper.writeValueAsBytes(batchRequest.getBody());
+            if (headers.getContentType() == null) {
+                headers.setContentType(MediaType.APPLICATION_JSON);
+            }
+        }
+        SubRequest subRequest = new SubRequest(request, batchRequest.getMethod(), batchRequest.getPath(), headers, body);
+        SubResponse subResponse = new SubResponse(response);
+        try {
+            filters.doFilter(subRequest, subResponse, dispatcherServlet::service);
+        } catch (Exception e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, e);
+        }
+        return toResponse(subResponse);
+    }
+
+    /**
+     * json 响应原样返回，文本类型转为 json 字符串，其他类型（cbor、smile、文件等）按 Base64 编码，避免按字符集解码损坏内容
+     */
+    private BatchResponse toResponse(SubResponse subResponse) throws JsonProcessingException {
+        Map<String, String> headers = subResponse.headers().toSingleValueMap();
+        byte[] body = subResponse.body();
+        if (body.length == 0) {
+            return new BatchResponse(subResponse.getStatus(), headers, null, null);
+        }
+        MediaType contentType = subResponse.headers().getContentType();
+        if (isJson(contentType)) {
+            return new BatchResponse(subResponse.getStatus(), headers, new String(body, charset(contentType)), null);
+        }
+        if (isText(contentType)) {
+            return new BatchResponse(subResponse.getStatus(), headers,
+                    objectMapper.writeValueAsString(new String(body, charset(contentType))), null);
+        }
+        return new BatchResponse(subResponse.getStatus(), headers,
+                objectMapper.writeValueAsString(Base64.getEncoder().encodeToString(body)), BatchResponse.BASE64);
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return contentType != null && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+json"));
+    }
+
+    private static boolean isText(MediaType contentType) {
+        return contentType != null && ("text".equals(contentType.getType())
+                || MediaType.APPLICATION_XML.isCompatibleWith(contentType)
+                || contentType.getSubtype().endsWith("+xml")
+                || MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType));
+    }
+
+    private static Charset charset(MediaType contentType) {
+        return contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+    }
+
+    private BatchResponse error(HttpStatus status, Throwable e) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(String.valueOf(e.getMessage()));
+        } catch (JsonProcessingException ex) {
+            message = null;
+        }
+        return new BatchResponse(status.value(), headers, message, null);
+    }
+
+    /**
+     * 一个子请求的执行任务
+     * <p>
+     * 还没开始执行就被取消的任务不再执行；已经开始执行的任务被中断，{@link #awaitExit()} 等到它退出为止
+     */
+    private final class SubTask implements Callable<BatchResponse> {
+
+        private final BatchRequest batchRequest;
+
+        private final HttpServletRequest request;
+
+        private final HttpServletResponse response;
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private final CountDownLatch exited = new CountDownLatch(1);
+
+        private Future<BatchResponse> future;
+
+        SubTask(BatchRequest batchRequest, HttpServletRequest request, HttpServletResponse response) {
+            this.batchRequest = batchRequest;
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public BatchResponse call() throws Exception {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return execute(batchRequest, request, response);
+            } finally {
+                exited.countDown();
+            }
+        }
+
+        void cancel() {
+            if (started.compareAndSet(false, true)) {
+                exited.countDown();
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        void awaitExit() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    exited.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.wangguangwu.resttemplate.batch;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 批量请求中的子请求
+ * <p>
+ * 请求行、请求头、请求体和 attribute 都是独立的，不会修改外层请求，
+ * 多个子请求可以在不同线程中同时交给 DispatcherServlet 处理；子请求带有 {@link BatchDispatcher#SUB_REQUEST_ATTRIBUTE}，
+ * 映射到批量接口时直接拒绝
+ *
+ * @author wangguangwu
+ */
+class SubRequest extends HttpServletRequestWrapper {
+
+    private final String method;
+
+    private final String path;
+
+    private final String queryString;
+
+    private final MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+
+    private final HttpHeaders headers;
+
+    private final byte[] body;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    SubRequest(HttpServletRequest outer, String method, String pathAndQuery, HttpHeaders headers, byte[] body) {
+        super(outer);
+        int question = pathAndQuery.indexOf('?');
+        this.method = method.toUpperCase(Locale.ROOT);
+        this.path = question < 0 ? pathAndQuery : pathAndQuery.substring(0, question);
+        this.queryString = question < 0 ? null : pathAndQuery.substring(question + 1);
+        if (queryString != null) {
+            UriComponentsBuilder.fromUriString("?" + queryString).build().getQueryParams()
+                    .forEach((name, values) -> values.forEach(value -> parameters.add(
+                            UriUtils.decode(name, StandardCharsets.UTF_8),
+                            value == null ? "" : UriUtils.decode(value, StandardCharsets.UTF_8))));
+        }
+        this.headers = headers;
+        this.body = body;
+        if (body.length > 0) {
+            headers.setContentLength(body.length);
+        }
+        attributes.put(BatchDispatcher.SUB_REQUEST_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + path;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer();
+        url.append(getScheme()).append("://").append(getServerName()).append(':').append(getServerPort());
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getServletPath() {
+        return path;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    //===================================请求参数========================================
+
+    @Override
+    public String getParameter(String name) {
+        return parameters.getFirst(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        Map<String, String[]> map = new LinkedHashMap<>();
+        parameters.forEach((name, values) -> map.put(name, values.toArray(new String[0])));
+        return map;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        List<String> values = parameters.get(name);
+        return values == null ? null : values.toArray(new String[0]);
+    }
+
+    //===================================请求头========================================
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values == null ? Collections.emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = headers.getFirst(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        return headers.getFirstDate(name);
+    }
+
+    @Override
+    public String getContentType() {
+        return headers.getFirst(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return StandardCharsets.UTF_8.name();
+    }
+
+    /**
+     * 请求体总是 UTF-8 编码的 json，忽略过滤器设置的编码，也不修改外层请求
+     */
+    @Override
+    public void setCharacterEncoding(String env) {
+    }
+
+    //===================================请求体========================================
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return inputStream.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return inputStream.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return inputStream.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    //===================================attribute========================================
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+}
@@ -0,0 +1,276 @@
+package com.wangguangwu.resttemplate.batch;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 批量请求中子请求的响应，状态码、响应头和响应体都写入内存，不会修改外层响应
+ *
+ * @author wangguangwu
+ */
+class SubResponse extends HttpServletResponseWrapper {
+
+    private final HttpHeaders headers = new HttpHeaders();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private int status = SC_OK;
+
+    private String characterEncoding;
+
+    private Locale locale = Locale.getDefault();
+
+    private ServletOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    SubResponse(HttpServletResponse outer) {
+        super(outer);
+    }
+
+    HttpHeaders headers() {
+        return headers;
+    }
+
+    byte[] body() {
+        if (writer != null) {
+            writer.flush();
+        }
+        return body.toByteArray();
+    }
+
+    //===================================状态码========================================
+
+    @Override
+    public void setStatus(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        this.status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) {
+        this.status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        this.status = sc;
+        if (msg != null) {
+            headers.setContentType(MediaType.TEXT_PLAIN);
+            byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+            body.reset();
+            body.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        this.status = SC_FOUND;
+        headers.set(HttpHeaders.LOCATION, location);
+    }
+
+    //===================================响应头========================================
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        headers.set(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        headers.add(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        headers.set(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        headers.add(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        headers.setDate(name, date);
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        HttpHeaders formatted = new HttpHeaders();
+        formatted.setDate(name, date);
+        headers.add(name, formatted.getFirst(name));
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.getFirst(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? new ArrayList<>() : new ArrayList<>(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return new ArrayList<>(headers.keySet());
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (type == null) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return;
+        }
+        MediaType mediaType = MediaType.parseMediaType(type);
+        if (mediaType.getCharset() != null) {
+            characterEncoding = mediaType.getCharset().name();
+        } else if (characterEncoding != null) {
+            mediaType = new MediaType(mediaType, Charset.forName(characterEncoding));
+        }
+        headers.setContentType(mediaType);
+    }
+
+    @Override
+    public String getContentType() {
+        return headers.getFirst(HttpHeaders.CONTENT_TYPE);
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        this.characterEncoding = charset;
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && charset != null) {
+            headers.setContentType(new MediaType(contentType, Charset.forName(charset)));
+        }
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding == null ? StandardCharsets.ISO_8859_1.name() : characterEncoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        headers.setContentLength(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        headers.setContentLength(len);
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    //===================================响应体========================================
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(body, Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public int getBufferSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        headers.clear();
+        status = SC_OK;
+    }
+
+    @Override
+    public void resetBuffer() {
+        body.reset();
+    }
+
+}
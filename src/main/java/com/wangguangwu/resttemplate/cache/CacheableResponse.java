@@ -0,0 +1,23 @@
+package com.wangguangwu.resttemplate.cache;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记返回值不变或很少变化的 GET 接口
+ * <p>
+ * 响应体只序列化一次并缓存为字节数组，附带弱 ETag，If-None-Match 命中时直接返回 304；
+ * 数据变化时需要调用 {@link ResponseCache#invalidate} 清除缓存
+ *
+ * @author wangguangwu
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheableResponse {
+
+    /**
+     * Cache-Control 的 max-age（秒），小于 0 时不设置
+     */
+    long maxAge() default 60;
+
+}
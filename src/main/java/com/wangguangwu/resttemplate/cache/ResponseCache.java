@@ -0,0 +1,197 @@
+package com.wangguangwu.resttemplate.cache;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预先序列化的响应缓存
+ * <p>
+ * key 由请求路径、查询参数和协商出的 Content-Type 组成，同一个接口不同参数、不同编码分别缓存；
+ * 写法不同但协商结果相同的 Accept 共用同一份响应。内容协商在接口方法执行之后才发生，
+ * 所以按接口方法和 Accept 记住上一次协商出的 Content-Type，命中时直接用它查找响应。
+ * 缓存个数达到上限时淘汰最久未访问的一半。
+ * <p>
+ * ETag 使用弱 ETag：Tomcat 默认不压缩带强 ETag 的响应（noCompressionStrongETag），
+ * 同一份内容压缩前后字节不同，也只能用弱 ETag 标识
+ *
+ * @author wangguangwu
+ */
+@Component
+public class ResponseCache {
+
+    /**
+     * 最多缓存的响应个数
+     */
+    private static final int MAX_ENTRIES = 10_000;
+
+    /**
+     * 每个接口方法最多记住的协商结果个数，达到上限时清空重新记录
+     */
+    private static final int MAX_NEGOTIATIONS = 1_000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 接口方法 -> Accept -> 协商出的 Content-Type
+     */
+    private final Map<Method, Map<String, MediaType>> negotiations = new ConcurrentHashMap<>();
+
+    /**
+     * @param handler 处理请求的接口方法
+     */
+    public Entry get(HttpServletRequest request, Method handler) {
+        Map<String, MediaType> accepts = negotiations.get(handler);
+        MediaType contentType = accepts == null ? null : accepts.get(accept(request));
+        if (contentType == null) {
+            return null;
+        }
+        Entry entry = entries.get(key(request, contentType));
+        if (entry != null) {
+            entry.lastAccess = System.nanoTime();
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存序列化后的响应体
+     *
+     * @param handler     处理请求的接口方法
+     * @param contentType 本次协商出的 Content-Type
+     */
+    public Entry put(HttpServletRequest request, Method handler, byte[] body, MediaType contentType, long maxAge) {
+        Entry entry = new Entry(body, contentType, "W/\"" + DigestUtils.md5DigestAsHex(body) + "\"", maxAge);
+        Map<String, MediaType> accepts = negotiations.computeIfAbsent(handler, key -> new ConcurrentHashMap<>());
+        if (accepts.size() >= MAX_NEGOTIATIONS) {
+            accepts.clear();
+        }
+        accepts.put(accept(request), contentType);
+        if (entries.size() < MAX_ENTRIES || evict()) {
+            entries.put(key(request, contentType), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 清除请求路径以 pathPrefix 开头的缓存
+     */
+    public void invalidate(String pathPrefix) {
+        entries.keySet().removeIf(key -> key.startsWith(pathPrefix));
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+        negotiations.clear();
+    }
+
+    /**
+     * 写出缓存的响应：If-None-Match 命中时返回 304，否则直接写出字节
+     */
+    public void write(Entry entry, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, entry.etag);
+        // 同一地址按 Accept 返回 json、CBOR 等不同编码
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (entry.maxAge >= 0) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                    CacheControl.maxAge(entry.maxAge, TimeUnit.SECONDS).getHeaderValue());
+        }
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(entry.contentType.toString());
+        response.setContentLength(entry.body.length);
+        response.getOutputStream().write(entry.body);
+    }
+
+    //===================================私有方法========================================
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        // If-None-Match 使用弱比较，只比较去掉 W/ 之后的部分
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate) || opaqueTag.equals(opaqueTag(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 条目数达到上限时淘汰最久未访问的一半
+     */
+    private synchronized boolean evict() {
+        if (entries.size() < MAX_ENTRIES) {
+            return true;
+        }
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<String, Entry> candidate : candidates.subList(0, candidates.size() / 2 + 1)) {
+            entries.remove(candidate.getKey(), candidate.getValue());
+        }
+        return entries.size() < MAX_ENTRIES;
+    }
+
+    private static String key(HttpServletRequest request, MediaType contentType) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query == null ? "" : "?" + query) + "|" + contentType;
+    }
+
+    private static String accept(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null ? "" : accept;
+    }
+
+    /**
+     * 缓存的响应
+     */
+    public static final class Entry {
+
+        private final byte[] body;
+
+        private final MediaType contentType;
+
+        private final String etag;
+
+        private final long maxAge;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(byte[] body, MediaType contentType, String etag, long maxAge) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.maxAge = maxAge;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+    }
+
+}
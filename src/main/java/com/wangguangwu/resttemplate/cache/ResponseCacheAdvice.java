@@ -0,0 +1,120 @@
+package com.wangguangwu.resttemplate.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 未命中缓存时：用本次选中的转换器把返回值序列化成字节数组，缓存后直接写出，返回值不再被序列化第二次
+ *
+ * @author wangguangwu
+ */
+@ControllerAdvice
+public class ResponseCacheAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ResponseCache responseCache;
+
+    private final ObjectProvider<HttpMessageConverters> messageConverters;
+
+    public ResponseCacheAdvice(ResponseCache responseCache, ObjectProvider<HttpMessageConverters> messageConverters) {
+        this.responseCache = responseCache;
+        this.messageConverters = messageConverters;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(CacheableResponse.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || !(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse)
+                || request.getMethod() != HttpMethod.GET) {
+            return body;
+        }
+        HttpMessageConverter<?> converter = findConverter(selectedConverterType);
+        if (converter == null) {
+            return body;
+        }
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        try {
+            BufferedOutputMessage outputMessage = new BufferedOutputMessage();
+            write(converter, body, returnType, selectedContentType, outputMessage);
+            MediaType contentType = outputMessage.headers.getContentType() != null
+                    ? outputMessage.headers.getContentType() : selectedContentType;
+            long maxAge = returnType.getMethodAnnotation(CacheableResponse.class).maxAge();
+            ResponseCache.Entry entry = responseCache.put(servletRequest, returnType.getMethod(),
+                    outputMessage.body.toByteArray(), contentType, maxAge);
+            responseCache.write(entry, servletRequest, ((ServletServerHttpResponse) response).getServletResponse());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // 响应已写出
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(HttpMessageConverter<?> converter, Object body, MethodParameter returnType,
+                       MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        if (converter instanceof GenericHttpMessageConverter) {
+            ((GenericHttpMessageConverter<Object>) converter).write(body, returnType.getGenericParameterType(),
+                    contentType, outputMessage);
+        } else {
+            ((HttpMessageConverter<Object>) converter).write(body, contentType, outputMessage);
+        }
+    }
+
+    private HttpMessageConverter<?> findConverter(Class<? extends HttpMessageConverter<?>> converterType) {
+        HttpMessageConverters converters = messageConverters.getIfAvailable();
+        if (converters == null) {
+            return null;
+        }
+        for (HttpMessageConverter<?> converter : converters.getConverters()) {
+            if (converterType.isInstance(converter)) {
+                return converter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把转换器的输出写入内存
+     */
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.wangguangwu.resttemplate.cache;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 命中缓存时直接写出缓存的字节，不再调用接口方法，也不再序列化
+ *
+ * @author wangguangwu
+ */
+@Component
+public class ResponseCacheInterceptor implements HandlerInterceptor {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheInterceptor(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod) || !HttpMethod.GET.matches(request.getMethod())
+                || !((HandlerMethod) handler).hasMethodAnnotation(CacheableResponse.class)) {
+            return true;
+        }
+        ResponseCache.Entry entry = responseCache.get(request, ((HandlerMethod) handler).getMethod());
+        if (entry == null) {
+            return true;
+        }
+        responseCache.write(entry, request, response);
+        return false;
+    }
+
+}
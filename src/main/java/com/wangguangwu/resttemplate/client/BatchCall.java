@@ -0,0 +1,42 @@
+package com.wangguangwu.resttemplate.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+
+import java.util.Map;
+
+/**
+ * 批量调用中的一次请求：url 模板 + url 参数，与 {@link org.springframework.web.client.RestTemplate#exchange} 的参数一致
+ *
+ * @author wangguangwu
+ */
+@Data
+@AllArgsConstructor
+public class BatchCall<T> {
+
+    private HttpMethod method;
+
+    private String url;
+
+    /**
+     * 请求实体（请求头，请求体），可以为 null
+     */
+    private HttpEntity<?> requestEntity;
+
+    /**
+     * 返回的结果类型
+     */
+    private Class<T> responseType;
+
+    /**
+     * url 中的参数
+     */
+    private Map<String, ?> uriVariables;
+
+    public static <T> BatchCall<T> get(String url, Class<T> responseType, Map<String, ?> uriVariables) {
+        return new BatchCall<>(HttpMethod.GET, url, null, responseType, uriVariables);
+    }
+
+}
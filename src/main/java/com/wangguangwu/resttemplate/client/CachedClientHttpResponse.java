@@ -0,0 +1,78 @@
+package com.wangguangwu.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 由缓存条目、预读或解压后的响应体构造的响应
+ *
+ * @author wangguangwu
+ */
+class CachedClientHttpResponse implements ClientHttpResponse {
+
+    private final int status;
+
+    private final String statusText;
+
+    private final HttpHeaders headers;
+
+    private final InputStream body;
+
+    private final ClientHttpResponse delegate;
+
+    /**
+     * @param delegate 仍需关闭的原始响应，可为 null
+     */
+    CachedClientHttpResponse(int status, String statusText, HttpHeaders headers, InputStream body,
+                             ClientHttpResponse delegate) {
+        this.status = status;
+        this.statusText = statusText;
+        this.headers = headers;
+        this.body = body;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+        return HttpStatus.valueOf(status);
+    }
+
+    @Override
+    public int getRawStatusCode() {
+        return status;
+    }
+
+    @Override
+    public String getStatusText() {
+        return statusText;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // 把剩余的响应体读完，连接才能放回连接池
+            StreamUtils.drain(body);
+            body.close();
+        } catch (IOException ignored) {
+        }
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.wangguangwu.resttemplate.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端调用使用的线程池
+ * <p>
+ * 项目以 Java 8 编译，虚拟线程只能通过反射创建；运行在 JDK 21+ 时可以切换为每个任务一个虚拟线程
+ *
+ * @author wangguangwu
+ */
+public final class ClientExecutors {
+
+    private ClientExecutors() {
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程
+     */
+    public static boolean virtualThreadsSupported() {
+        return virtualThreadPerTaskExecutor() != null;
+    }
+
+    /**
+     * 创建线程池
+     *
+     * @param name           线程名前缀
+     * @param threads        平台线程数
+     * @param virtualThreads 是否优先使用虚拟线程，JVM 不支持时退化为固定大小的平台线程池
+     */
+    public static ExecutorService newExecutor(String name, int threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            Method method = virtualThreadPerTaskExecutor();
+            if (method != null) {
+                try {
+                    return (ExecutorService) method.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("创建虚拟线程池失败", e);
+                }
+            }
+        }
+        return Executors.newFixedThreadPool(threads, daemonThreadFactory(name));
+    }
+
+    /**
+     * 以 name-序号 命名的守护线程
+     */
+    public static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method virtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
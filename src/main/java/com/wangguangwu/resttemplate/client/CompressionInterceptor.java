@@ -0,0 +1,80 @@
+package com.wangguangwu.resttemplate.client;
+
+import com.wangguangwu.resttemplate.compression.ContentCodings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+import java.io.IOException;
+
+/**
+ * RestTemplate 的请求体压缩和响应体解压
+ * <p>
+ * 请求体不小于 minRequestSize 时用 gzip 压缩，服务端需要能解压请求体（见 RequestDecompressionFilter）；
+ * multipart 和 x-www-form-urlencoded 的请求体在过滤器之前就会被容器解析，不压缩；
+ * 自动声明 Accept-Encoding，响应体为 gzip/deflate 时透明解压。
+ * Apache HttpClient 自身已会解压响应，此时拦截器只负责压缩请求体
+ *
+ * @author wangguangwu
+ */
+public class CompressionInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int minRequestSize;
+
+    /**
+     * @param minRequestSize 压缩请求体的最小字节数，小于 0 时不压缩请求体
+     */
+    public CompressionInterceptor(int minRequestSize) {
+        this.minRequestSize = minRequestSize;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        // 在副本上修改请求头，调用方和前面的拦截器看到的请求头保持不变
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(request.getHeaders());
+        if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, ContentCodings.ACCEPT_ENCODING);
+        }
+        if (minRequestSize >= 0 && body.length >= minRequestSize && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                && isCompressible(headers.getContentType())) {
+            body = ContentCodings.encode(body, ContentCodings.GZIP);
+            headers.set(HttpHeaders.CONTENT_ENCODING, ContentCodings.GZIP);
+            headers.setContentLength(body.length);
+        }
+        ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        }, body);
+        String contentEncoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (!ContentCodings.isSupported(contentEncoding) || request.getMethod() == HttpMethod.HEAD
+                || response.getRawStatusCode() == HttpStatus.NO_CONTENT.value()
+                || response.getRawStatusCode() == HttpStatus.NOT_MODIFIED.value()
+                || response.getHeaders().getContentLength() == 0) {
+            return response;
+        }
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.putAll(response.getHeaders());
+        responseHeaders.remove(HttpHeaders.CONTENT_ENCODING);
+        responseHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+        return new CachedClientHttpResponse(response.getRawStatusCode(), response.getStatusText(), responseHeaders,
+                ContentCodings.decode(response.getBody(), contentEncoding), response);
+    }
+
+    //===================================私有方法========================================
+
+    private static boolean isCompressible(MediaType contentType) {
+        return contentType == null || !("multipart".equals(contentType.getType())
+                || MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType));
+    }
+
+}
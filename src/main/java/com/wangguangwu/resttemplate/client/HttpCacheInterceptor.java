@@ -0,0 +1,295 @@
+package com.wangguangwu.resttemplate.client;
+
+import com.wangguangwu.resttemplate.dto.HttpCacheStats;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RestTemplate 的客户端 HTTP 缓存
+ * <p>
+ * 按 Cache-Control（max-age、no-cache、no-store）和 Expires 判断缓存是否新鲜，新鲜时不发请求；
+ * 过期后如果有 ETag 或 Last-Modified，则发送条件请求，304 时直接使用缓存的响应体。
+ * 只缓存 GET 200 响应；带 Range、条件请求头或 Authorization 的请求不经过缓存
+ *
+ * @author wangguangwu
+ */
+public class HttpCacheInterceptor implements ClientHttpRequestInterceptor {
+
+    private final HttpCacheStore store;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder revalidations = new LongAdder();
+
+    private final LongAdder notModified = new LongAdder();
+
+    public HttpCacheInterceptor(HttpCacheStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!cacheable(request)) {
+            return execution.execute(request, body);
+        }
+        String key = key(request);
+        HttpCacheStore.Entry entry = store.get(key);
+        if (entry != null && !varyMatches(entry, request.getHeaders())) {
+            entry = null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null && isFresh(entry, now) && !cacheControl(request.getHeaders()).contains("no-cache")) {
+            hits.increment();
+            return toResponse(entry, now);
+        }
+        // 执行前复制请求头，后面的拦截器修改请求头时缓存记录的 Vary 请求头仍是调用方发出的
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(request.getHeaders());
+        HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.putAll(requestHeaders);
+        if (entry == null || !addConditions(conditionalHeaders, entry.getHeaders())) {
+            misses.increment();
+            return store(key, requestHeaders, execution.execute(request, body));
+        }
+        revalidations.increment();
+        ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+            @Override
+            public HttpHeaders getHeaders() {
+                return conditionalHeaders;
+            }
+        }, body);
+        if (response.getRawStatusCode() != HttpStatus.NOT_MODIFIED.value()) {
+            return store(key, requestHeaders, response);
+        }
+        notModified.increment();
+        HttpCacheStore.Entry revalidated = entry.revalidated(response.getHeaders(), now);
+        response.close();
+        store.put(key, revalidated);
+        return toResponse(revalidated, now);
+    }
+
+    /**
+     * 命中、未命中、重新验证的次数及缓存占用
+     */
+    public HttpCacheStats getStats() {
+        return new HttpCacheStats(hits.sum(), misses.sum(), revalidations.sum(), notModified.sum(),
+                store.size(), store.getMemoryBytes(), store.getDiskBytes());
+    }
+
+    public HttpCacheStore getStore() {
+        return store;
+    }
+
+    //===================================私有方法========================================
+
+    private static boolean cacheable(HttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getMethod() == HttpMethod.GET
+                && !headers.containsKey(HttpHeaders.RANGE)
+                && !headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+                && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                && !headers.containsKey(HttpHeaders.AUTHORIZATION)
+                && !cacheControl(headers).contains("no-store");
+    }
+
+    /**
+     * 不同 Accept 的响应分别缓存，Vary 的其他请求头在命中时再比较
+     */
+    private static String key(HttpRequest request) {
+        String accept = String.join(",", request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT));
+        return request.getURI() + "|" + accept;
+    }
+
+    private static boolean varyMatches(HttpCacheStore.Entry entry, HttpHeaders requestHeaders) {
+        for (String name : entry.getVaryHeaders().keySet()) {
+            if (!entry.getVaryHeaders().getOrEmpty(name).equals(requestHeaders.getOrEmpty(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFresh(HttpCacheStore.Entry entry, long now) {
+        String cacheControl = cacheControl(entry.getHeaders());
+        if (cacheControl.contains("no-cache")) {
+            return false;
+        }
+        long maxAge = maxAge(cacheControl);
+        if (maxAge >= 0) {
+            return now - entry.getStoredAt() < maxAge * 1000;
+        }
+        long expires = entry.getHeaders().getExpires();
+        if (expires > 0) {
+            long date = entry.getHeaders().getDate();
+            // 以服务端 Date 为基准计算 Expires，避免两端时钟偏差
+            long lifetime = expires - (date > 0 ? date : entry.getStoredAt());
+            return now - entry.getStoredAt() < lifetime;
+        }
+        return false;
+    }
+
+    /**
+     * 按缓存的 ETag、Last-Modified 添加条件请求头
+     *
+     * @return 是否可以发送条件请求
+     */
+    private static boolean addConditions(HttpHeaders requestHeaders, HttpHeaders cachedHeaders) {
+        String etag = cachedHeaders.getETag();
+        long lastModified = cachedHeaders.getLastModified();
+        if (etag != null) {
+            requestHeaders.setIfNoneMatch(etag);
+        }
+        if (lastModified > 0) {
+            requestHeaders.setIfModifiedSince(lastModified);
+        }
+        return etag != null || lastModified > 0;
+    }
+
+    /**
+     * 可缓存的响应读取响应体并存入缓存，过大的响应体直接透传；
+     * 没有 Content-Length 的响应边读边写入磁盘，超过磁盘上限时停止写入，剩余部分直接返回给调用方
+     *
+     * @param requestHeaders 发送请求前复制的请求头，用于记录 Vary 的请求头
+     */
+    private ClientHttpResponse store(String key, HttpHeaders requestHeaders, ClientHttpResponse response)
+            throws IOException {
+        HttpHeaders headers = response.getHeaders();
+        String cacheControl = cacheControl(headers);
+        if (response.getRawStatusCode() != HttpStatus.OK.value() || cacheControl.contains("no-store")
+                || headers.getVary().contains("*")
+                || (maxAge(cacheControl) < 0 && headers.getExpires() <= 0
+                && headers.getETag() == null && headers.getLastModified() <= 0)) {
+            store.remove(key);
+            return response;
+        }
+        long contentLength = headers.getContentLength();
+        long maxBodySize = store.isDiskEnabled() ? store.getMaxDiskBytes() : store.getMaxMemoryBodySize();
+        if (contentLength > maxBodySize) {
+            return response;
+        }
+        HttpHeaders varyHeaders = new HttpHeaders();
+        for (String name : headers.getVary()) {
+            varyHeaders.put(name, requestHeaders.getOrEmpty(name));
+        }
+        InputStream body = response.getBody();
+        byte[] head = readAtMost(body, store.getMaxMemoryBodySize() + 1);
+        long now = System.currentTimeMillis();
+        HttpCacheStore.Entry entry;
+        if (head.length <= store.getMaxMemoryBodySize()) {
+            entry = new HttpCacheStore.Entry(response.getRawStatusCode(), response.getStatusText(), headers,
+                    head, null, head.length, now, varyHeaders);
+        } else if (store.isDiskEnabled()) {
+            Path file = store.newDiskFile();
+            long size;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(head);
+                // 没有 Content-Length 时最多写入 maxDiskBytes + 1 字节，用于判断是否超过上限
+                size = head.length + copyAtMost(body, out, store.getMaxDiskBytes() + 1 - head.length);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            if (size > store.getMaxDiskBytes()) {
+                // 超过磁盘上限，不缓存：已写入文件的部分和剩余的响应体拼起来返回，关闭时删除文件
+                InputStream spooled;
+                try {
+                    spooled = Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+                } catch (IOException e) {
+                    Files.deleteIfExists(file);
+                    throw e;
+                }
+                return new CachedClientHttpResponse(response.getRawStatusCode(), response.getStatusText(), headers,
+                        new SequenceInputStream(spooled, body), response);
+            }
+            entry = new HttpCacheStore.Entry(response.getRawStatusCode(), response.getStatusText(), headers,
+                    null, file, size, now, varyHeaders);
+        } else {
+            // 不缓存，把已读取的部分和剩余的响应体拼起来返回
+            return new CachedClientHttpResponse(response.getRawStatusCode(), response.getStatusText(), headers,
+                    new SequenceInputStream(new ByteArrayInputStream(head), body), response);
+        }
+        response.close();
+        // 先打开响应体再放入缓存，条目被立即淘汰时仍可读取
+        InputStream cachedBody = entry.openBody();
+        store.put(key, entry);
+        return new CachedClientHttpResponse(entry.getStatus(), entry.getStatusText(), entry.getHeaders(),
+                cachedBody, null);
+    }
+
+    private static ClientHttpResponse toResponse(HttpCacheStore.Entry entry, long now) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(entry.getHeaders());
+        headers.set(HttpHeaders.AGE, String.valueOf(Math.max(0, (now - entry.getStoredAt()) / 1000)));
+        return new CachedClientHttpResponse(entry.getStatus(), entry.getStatusText(), headers, entry.openBody(), null);
+    }
+
+    private static byte[] readAtMost(InputStream in, long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while (out.size() < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - out.size()))) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 最多复制 limit 字节
+     *
+     * @return 复制的字节数
+     */
+    private static long copyAtMost(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        long copied = 0;
+        int read;
+        while (copied < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied))) != -1) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    private static String cacheControl(HttpHeaders headers) {
+        return String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 解析 max-age，没有时返回 -1
+     */
+    private static long maxAge(String cacheControl) {
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim();
+            if (directive.startsWith("max-age=")) {
+                try {
+                    return Long.parseLong(directive.substring("max-age=".length()).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+}
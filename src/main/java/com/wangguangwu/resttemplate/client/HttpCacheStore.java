@@ -0,0 +1,239 @@
+package com.wangguangwu.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link HttpCacheInterceptor} 的存储
+ * <p>
+ * 小响应体保存在内存，大响应体在配置了磁盘目录时保存为文件；两层各自按字节数上限做 LRU 淘汰
+ *
+ * @author wangguangwu
+ */
+public class HttpCacheStore {
+
+    private final long maxMemoryBytes;
+
+    private final long maxMemoryBodySize;
+
+    private final Path diskDirectory;
+
+    private final long maxDiskBytes;
+
+    /**
+     * 按访问顺序排列，最久未访问的在前
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    private long diskBytes;
+
+    /**
+     * @param maxMemoryBytes    内存中响应体的总字节数上限
+     * @param maxMemoryBodySize 单个响应体保存在内存中的字节数上限，超过时写入磁盘
+     * @param diskDirectory     磁盘缓存目录，为 null 时只使用内存
+     * @param maxDiskBytes      磁盘中响应体的总字节数上限
+     */
+    public HttpCacheStore(long maxMemoryBytes, long maxMemoryBodySize, Path diskDirectory, long maxDiskBytes) {
+        Assert.isTrue(maxMemoryBodySize <= maxMemoryBytes, "maxMemoryBodySize 不能大于 maxMemoryBytes");
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxMemoryBodySize = maxMemoryBodySize;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            release(previous, entry);
+        }
+        memoryBytes += entry.memorySize();
+        diskBytes += entry.diskSize();
+        evict();
+    }
+
+    public synchronized void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            release(previous, null);
+        }
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            release(entry, null);
+        }
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    long getMaxMemoryBodySize() {
+        return maxMemoryBodySize;
+    }
+
+    boolean isDiskEnabled() {
+        return diskDirectory != null;
+    }
+
+    long getMaxDiskBytes() {
+        return maxDiskBytes;
+    }
+
+    /**
+     * 在磁盘目录中创建响应体文件
+     */
+    Path newDiskFile() throws IOException {
+        return Files.createTempFile(diskDirectory, "http-cache-", ".body");
+    }
+
+    //===================================私有方法========================================
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((memoryBytes > maxMemoryBytes || diskBytes > maxDiskBytes) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if ((memoryBytes > maxMemoryBytes && eldest.memorySize() > 0)
+                    || (diskBytes > maxDiskBytes && eldest.diskSize() > 0)) {
+                iterator.remove();
+                release(eldest, null);
+            }
+        }
+    }
+
+    /**
+     * 释放被替换或淘汰的条目，重新验证后复用同一文件的不删除
+     */
+    private void release(Entry entry, Entry replacement) {
+        memoryBytes -= entry.memorySize();
+        diskBytes -= entry.diskSize();
+        if (entry.file != null && (replacement == null || !entry.file.equals(replacement.file))) {
+            try {
+                Files.deleteIfExists(entry.file);
+            } catch (IOException ignored) {
+                // 文件仍被读取时可能删除失败，留给操作系统清理
+            }
+        }
+    }
+
+    /**
+     * 缓存的响应，不可变；重新验证后生成新条目替换旧条目
+     */
+    public static final class Entry {
+
+        private final int status;
+
+        private final String statusText;
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+
+        private final Path file;
+
+        private final long bodySize;
+
+        /**
+         * 存储（或重新验证）时刻，毫秒
+         */
+        private final long storedAt;
+
+        /**
+         * Vary 指定的请求头，与新请求一致才能复用
+         */
+        private final HttpHeaders varyHeaders;
+
+        Entry(int status, String statusText, HttpHeaders headers, byte[] body, Path file, long bodySize,
+              long storedAt, HttpHeaders varyHeaders) {
+            this.status = status;
+            this.statusText = statusText;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+            this.file = file;
+            this.bodySize = bodySize;
+            this.storedAt = storedAt;
+            this.varyHeaders = HttpHeaders.readOnlyHttpHeaders(varyHeaders);
+        }
+
+        /**
+         * 用 304 响应的头更新元数据，响应体不变
+         */
+        Entry revalidated(HttpHeaders notModifiedHeaders, long now) {
+            HttpHeaders merged = new HttpHeaders();
+            merged.putAll(headers);
+            notModifiedHeaders.forEach((name, values) -> {
+                if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                    merged.put(name, values);
+                }
+            });
+            return new Entry(status, statusText, merged, body, file, bodySize, now, varyHeaders);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        String getStatusText() {
+            return statusText;
+        }
+
+        HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        long getStoredAt() {
+            return storedAt;
+        }
+
+        HttpHeaders getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        InputStream openBody() throws IOException {
+            return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(body);
+        }
+
+        private long memorySize() {
+            return body != null ? body.length : 0;
+        }
+
+        private long diskSize() {
+            return file != null ? bodySize : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.wangguangwu.resttemplate.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.json.JsonStreamReader;
+import com.wangguangwu.resttemplate.json.JsonStreamWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * 配合 {@link org.springframework.web.client.RestTemplate#execute} 流式收发 NDJSON
+ * <p>
+ * 请求体边生成边发送，需要关闭 ClientHttpRequestFactory 的请求体缓冲，
+ * 如 {@code SimpleClientHttpRequestFactory#setBufferRequestBody(false)}，并且 RestTemplate 不能有拦截器，
+ * 否则请求体仍会在内存中攒齐后再发送
+ *
+ * @author wangguangwu
+ */
+public final class JsonStreamCallbacks {
+
+    private JsonStreamCallbacks() {
+    }
+
+    /**
+     * 把 elements 逐个写成 NDJSON 请求体，并声明接收 NDJSON 响应
+     */
+    public static RequestCallback ndjsonRequest(ObjectMapper objectMapper, Iterator<?> elements) {
+        return request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+            request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_NDJSON));
+            // HttpComponents 等流式请求不支持 getBody()，在发送时回调写出请求体
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(out -> writeNdjson(objectMapper, elements, out));
+            } else {
+                writeNdjson(objectMapper, elements, request.getBody());
+            }
+        };
+    }
+
+    /**
+     * 逐个解析 NDJSON 或 json 数组响应体并交给 handler
+     *
+     * @return 元素个数
+     */
+    public static <T> ResponseExtractor<Long> forEach(ObjectMapper objectMapper, Class<T> type,
+                                                      JsonStreamReader.ElementHandler<? super T> handler) {
+        return response -> JsonStreamReader.forEach(objectMapper, response.getBody(), type, handler);
+    }
+
+    //===================================私有方法========================================
+
+    private static void writeNdjson(ObjectMapper objectMapper, Iterator<?> elements, OutputStream out)
+            throws IOException {
+        try (JsonStreamWriter<Object> writer = new JsonStreamWriter<>(objectMapper, out, true)) {
+            while (elements.hasNext()) {
+                writer.write(elements.next());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.wangguangwu.resttemplate.client;
+
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+/**
+ * RestTemplate 的并行批量调用
+ * <p>
+ * 同一批请求最多同时执行 maxConcurrency 个，每个请求有独立的超时时间；
+ * 任意一个请求失败、超时或被取消时，整批中尚未完成的请求都会被取消
+ *
+ * @author wangguangwu
+ */
+public class ParallelRestTemplate implements AutoCloseable {
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService executor;
+
+    private final ScheduledExecutorService timer;
+
+    private final int maxConcurrency;
+
+    private final Duration callTimeout;
+
+    /**
+     * @param restTemplate   restTemplate
+     * @param executor       执行请求的线程池，关闭时一并关闭
+     * @param maxConcurrency 每批请求的最大并发数
+     * @param callTimeout    单个请求的超时时间
+     */
+    public ParallelRestTemplate(RestTemplate restTemplate, ExecutorService executor,
+                                int maxConcurrency, Duration callTimeout) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("并发数必须大于 0");
+        }
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.callTimeout = callTimeout;
+        this.timer = Executors.newSingleThreadScheduledExecutor(ClientExecutors.daemonThreadFactory("parallel-rest-timer"));
+    }
+
+    /**
+     * 提交一批请求
+     *
+     * @return 与 calls 顺序一致的结果
+     */
+    public <T> List<CompletableFuture<T>> submit(List<BatchCall<T>> calls) {
+        Batch<T> batch = new Batch<>(calls);
+        batch.start();
+        return batch.results;
+    }
+
+    /**
+     * 提交一批请求，按完成的先后顺序返回结果
+     * <p>
+     * 遇到失败的请求时，流在该位置抛出 {@link CompletionException} 或 {@link CancellationException}
+     */
+    public <T> Stream<T> stream(List<BatchCall<T>> calls) {
+        List<CompletableFuture<T>> futures = submit(calls);
+        BlockingQueue<CompletableFuture<T>> completed = new LinkedBlockingQueue<>();
+        futures.forEach(future -> future.whenComplete((value, e) -> completed.add(future)));
+        return Stream.generate(() -> take(completed, futures)).limit(futures.size());
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private static <T> T take(BlockingQueue<CompletableFuture<T>> completed, List<CompletableFuture<T>> futures) {
+        try {
+            return completed.take().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new CancellationException("等待结果时被中断");
+        }
+    }
+
+    /**
+     * 一批请求：某个请求结束时再启动下一个，保证同时执行的请求不超过 maxConcurrency，且提交时不阻塞调用方
+     */
+    private class Batch<T> {
+
+        private final List<BatchCall<T>> calls;
+
+        private final List<CompletableFuture<T>> results;
+
+        private final AtomicReferenceArray<Future<?>> tasks;
+
+        private final AtomicReferenceArray<ScheduledFuture<?>> timeouts;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Batch(List<BatchCall<T>> calls) {
+            this.calls = calls;
+            this.tasks = new AtomicReferenceArray<>(calls.size());
+            this.timeouts = new AtomicReferenceArray<>(calls.size());
+            List<CompletableFuture<T>> futures = new ArrayList<>(calls.size());
+            for (int i = 0; i < calls.size(); i++) {
+                int index = i;
+                CompletableFuture<T> future = new CompletableFuture<>();
+                future.whenComplete((value, e) -> onComplete(index, e));
+                futures.add(future);
+            }
+            this.results = Collections.unmodifiableList(futures);
+        }
+
+        void start() {
+            int initial = Math.min(maxConcurrency, calls.size());
+            for (int i = 0; i < initial; i++) {
+                launchNext();
+            }
+        }
+
+        private void launchNext() {
+            int index;
+            // 跳过已被取消的请求
+            do {
+                index = next.getAndIncrement();
+                if (index >= calls.size() || cancelled.get()) {
+                    return;
+                }
+            } while (results.get(index).isDone());
+            BatchCall<T> call = calls.get(index);
+            CompletableFuture<T> result = results.get(index);
+            Future<?> task;
+            try {
+                task = executor.submit(() -> {
+                    try {
+                        result.complete(restTemplate.exchange(call.getUrl(), call.getMethod(), call.getRequestEntity(),
+                                call.getResponseType(), call.getUriVariables()).getBody());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            tasks.set(index, task);
+            if (callTimeout != null && !result.isDone()) {
+                timeouts.set(index, timer.schedule(() -> {
+                    if (result.completeExceptionally(new TimeoutException("请求超时: " + call.getUrl()))) {
+                        task.cancel(true);
+                    }
+                }, callTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            }
+        }
+
+        private void onComplete(int index, Throwable e) {
+            ScheduledFuture<?> timeout = timeouts.get(index);
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (e != null) {
+                cancelAll();
+            } else {
+                launchNext();
+            }
+        }
+
+        /**
+         * 快速失败：取消所有尚未完成的请求
+         */
+        private void cancelAll() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            for (int i = 0; i < calls.size(); i++) {
+                results.get(i).cancel(false);
+                Future<?> task = tasks.get(i);
+                if (task != null) {
+                    task.cancel(true);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.wangguangwu.resttemplate.client;
+
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.dto.ConnectionPoolStats;
+import com.wangguangwu.resttemplate.resilience.Deadline;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Apache HttpClient 连接池的 ClientHttpRequestFactory
+ * <p>
+ * 复用 keep-alive 连接，支持总连接数、每个路由的连接数、存活时间、空闲回收以及各类超时配置，
+ * 并通过 {@link #getPoolStats()} 暴露连接池的实时状态；当前线程有 {@link Deadline} 时，各类超时不超过剩余时间
+ *
+ * @author wangguangwu
+ */
+public class PooledClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CountingConnectionFactory connectionFactory;
+
+    private final RequestConfig requestConfig;
+
+    private final AtomicLong lastCreated = new AtomicLong();
+
+    private final AtomicLong lastStatsTime = new AtomicLong(System.nanoTime());
+
+    public PooledClientHttpRequestFactory(RestClientProperties properties) {
+        this(properties, new CountingConnectionFactory());
+    }
+
+    private PooledClientHttpRequestFactory(RestClientProperties properties, CountingConnectionFactory connectionFactory) {
+        this(properties, connectionFactory, connectionManager(properties, connectionFactory));
+    }
+
+    private PooledClientHttpRequestFactory(RestClientProperties properties,
+                                           CountingConnectionFactory connectionFactory,
+                                           PoolingHttpClientConnectionManager connectionManager) {
+        super(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy(properties.getKeepAlive().toMillis()))
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleEviction().toMillis(), TimeUnit.MILLISECONDS)
+                .setDefaultRequestConfig(requestConfig(properties))
+                .build());
+        this.connectionManager = connectionManager;
+        this.connectionFactory = connectionFactory;
+        this.requestConfig = requestConfig(properties);
+    }
+
+    /**
+     * 连接池实时状态
+     */
+    public ConnectionPoolStats getPoolStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        long created = connectionFactory.created.sum();
+        long now = System.nanoTime();
+        long previousCreated = lastCreated.getAndSet(created);
+        long previousTime = lastStatsTime.getAndSet(now);
+        double seconds = (now - previousTime) / 1_000_000_000.0;
+        double rate = seconds > 0 ? (created - previousCreated) / seconds : 0;
+        return new ConnectionPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(),
+                stats.getMax(), created, rate);
+    }
+
+    /**
+     * 有截止时间时把连接、读取、等待连接的超时缩短到剩余时间；读取超时限制的是单次读取，不是整个响应
+     */
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return super.createHttpContext(httpMethod, uri);
+        }
+        int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, deadline.remaining().toMillis()));
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.copy(requestConfig)
+                .setConnectTimeout(cap(requestConfig.getConnectTimeout(), remaining))
+                .setSocketTimeout(cap(requestConfig.getSocketTimeout(), remaining))
+                .setConnectionRequestTimeout(cap(requestConfig.getConnectionRequestTimeout(), remaining))
+                .build());
+        return context;
+    }
+
+    private static RequestConfig requestConfig(RestClientProperties properties) {
+        return RequestConfig.custom()
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) properties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis())
+                .build();
+    }
+
+    /**
+     * 小于等于 0 的超时表示不限制
+     */
+    private static int cap(int timeout, int remaining) {
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(RestClientProperties properties,
+                                                                        CountingConnectionFactory connectionFactory) {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        long timeToLive = properties.getTimeToLive().toMillis();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                registry, connectionFactory, null, null,
+                timeToLive > 0 ? timeToLive : -1, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity((int) properties.getValidateAfterInactivity().toMillis());
+        return connectionManager;
+    }
+
+    /**
+     * 优先使用服务端 Keep-Alive 头给出的时间，但不超过配置的保活时间
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAlive) {
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+        };
+    }
+
+    /**
+     * 统计新建连接数
+     */
+    private static class CountingConnectionFactory extends ManagedHttpClientConnectionFactory {
+
+        private final LongAdder created = new LongAdder();
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            created.increment();
+            return super.create(route, config);
+        }
+
+    }
+
+}
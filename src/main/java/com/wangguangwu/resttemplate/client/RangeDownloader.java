@@ -0,0 +1,293 @@
+package com.wangguangwu.resttemplate.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 基于 {@link RestTemplate#execute} 的分片并行下载
+ * <p>
+ * 先通过 HEAD 获取文件长度和 ETag，预分配目标文件，再按字节区间并发请求，
+ * 每个分片的响应流直接写入目标文件对应的位置；
+ * 下载进度记录在 {@code 目标文件.progress} 中，中断后再次调用会从断点继续，
+ * 续传时携带 If-Range，服务端文件已变化则从头下载
+ *
+ * @author wangguangwu
+ */
+public class RangeDownloader {
+
+    /**
+     * 进度文件后缀
+     */
+    private static final String PROGRESS_SUFFIX = ".progress";
+
+    /**
+     * 每写入这么多字节刷新一次进度
+     */
+    private static final long PROGRESS_INTERVAL = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService executor;
+
+    private final int chunks;
+
+    /**
+     * @param restTemplate restTemplate
+     * @param executor     执行分片请求的线程池
+     * @param chunks       分片数
+     */
+    public RangeDownloader(RestTemplate restTemplate, ExecutorService executor, int chunks) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("分片数必须大于 0");
+        }
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.chunks = chunks;
+    }
+
+    /**
+     * 下载文件到 target
+     *
+     * @param url          url
+     * @param target       目标文件
+     * @param uriVariables url 中的参数
+     * @return target
+     */
+    public Path download(String url, Path target, Object... uriVariables) throws IOException {
+        HttpHeaders headers = restTemplate.headForHeaders(url, uriVariables);
+        long length = headers.getContentLength();
+        String etag = headers.getETag();
+        boolean acceptRanges = "bytes".equalsIgnoreCase(headers.getFirst(HttpHeaders.ACCEPT_RANGES));
+        if (!acceptRanges || length <= 0) {
+            // 服务端不支持区间请求，只能单流下载
+            return downloadWhole(url, target, uriVariables);
+        }
+        Path progressPath = Paths.get(target.toString() + PROGRESS_SUFFIX);
+        Progress progress = Progress.load(progressPath, length, etag, Math.min(chunks, (int) Math.min(length, Integer.MAX_VALUE)));
+        // 预分配
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            if (file.length() != length) {
+                file.setLength(length);
+            }
+        }
+        try (FileChannel fileChannel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < progress.chunkCount(); i++) {
+                int chunk = i;
+                futures.add(executor.submit(() -> {
+                    downloadChunk(url, fileChannel, progress, chunk, uriVariables);
+                    return null;
+                }));
+            }
+            await(futures);
+            fileChannel.force(false);
+        } finally {
+            progress.close();
+        }
+        Files.deleteIfExists(progressPath);
+        return target;
+    }
+
+    private void downloadChunk(String url, FileChannel fileChannel, Progress progress,
+                               int chunk, Object... uriVariables) throws IOException {
+        long start = progress.position(chunk);
+        long end = progress.end(chunk);
+        if (start > end) {
+            // 分片已下载完成
+            return;
+        }
+        restTemplate.execute(url, HttpMethod.GET, request -> {
+            request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+            if (StringUtils.hasText(progress.etag)) {
+                request.getHeaders().set(HttpHeaders.IF_RANGE, progress.etag);
+            }
+        }, response -> {
+            if (response.getStatusCode() != HttpStatus.PARTIAL_CONTENT) {
+                // If-Range 不匹配，服务端文件已被修改
+                progress.invalidate();
+                throw new IOException("分片 " + chunk + " 未返回 206，文件可能已变化: " + response.getStatusCode());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            InputStream body = response.getBody();
+            long position = start;
+            long flushed = start;
+            int read;
+            while (position <= end && (read = body.read(buffer.array(), 0,
+                    (int) Math.min(BUFFER_SIZE, end - position + 1))) != -1) {
+                buffer.limit(read);
+                while (buffer.hasRemaining()) {
+                    position += fileChannel.write(buffer, position);
+                }
+                buffer.clear();
+                if (position - flushed >= PROGRESS_INTERVAL) {
+                    progress.update(chunk, position);
+                    flushed = position;
+                }
+            }
+            progress.update(chunk, position);
+            if (position <= end) {
+                throw new EOFException("分片 " + chunk + " 提前结束: " + position + "/" + end);
+            }
+            return null;
+        }, uriVariables);
+    }
+
+    private Path downloadWhole(String url, Path target, Object... uriVariables) {
+        return restTemplate.execute(url, HttpMethod.GET, null, response -> {
+            Files.copy(response.getBody(), target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        }, uriVariables);
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("下载被中断");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 断点信息：ETag、文件长度、分片数以及每个分片已写入的位置
+     * <p>
+     * 文件格式：UTF(etag) | long(length) | long(chunkSize) | int(chunkCount) | long[chunkCount](position)
+     */
+    private static final class Progress implements Closeable {
+
+        private final String etag;
+
+        private final long length;
+
+        private final long chunkSize;
+
+        private final long[] positions;
+
+        private final FileChannel channel;
+
+        private final long positionsOffset;
+
+        private Progress(String etag, long length, long chunkSize, long[] positions,
+                         FileChannel channel, long positionsOffset) {
+            this.etag = etag;
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.positions = positions;
+            this.channel = channel;
+            this.positionsOffset = positionsOffset;
+        }
+
+        static Progress load(Path path, long length, String etag, int chunkCount) throws IOException {
+            String currentEtag = etag == null ? "" : etag;
+            if (Files.exists(path)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    String savedEtag = in.readUTF();
+                    long savedLength = in.readLong();
+                    long savedChunkSize = in.readLong();
+                    int savedChunks = in.readInt();
+                    // 只有服务端文件未变化时才续传
+                    if (!currentEtag.isEmpty() && savedEtag.equals(currentEtag) && savedLength == length) {
+                        long[] positions = new long[savedChunks];
+                        for (int i = 0; i < savedChunks; i++) {
+                            positions[i] = in.readLong();
+                        }
+                        return open(path, currentEtag, length, savedChunkSize, positions);
+                    }
+                } catch (EOFException e) {
+                    // 进度文件不完整，重新下载
+                }
+            }
+            long chunkSize = (length + chunkCount - 1) / chunkCount;
+            long[] positions = new long[(int) ((length + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = i * chunkSize;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(currentEtag);
+                out.writeLong(length);
+                out.writeLong(chunkSize);
+                out.writeInt(positions.length);
+                for (long position : positions) {
+                    out.writeLong(position);
+                }
+            }
+            Files.write(path, bytes.toByteArray());
+            return open(path, currentEtag, length, chunkSize, positions);
+        }
+
+        private static Progress open(Path path, String etag, long length, long chunkSize,
+                                     long[] positions) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            // UTF 长度前缀 2 字节 + long + long + int
+            long offset = 2 + etag.getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4;
+            return new Progress(etag, length, chunkSize, positions, channel, offset);
+        }
+
+        int chunkCount() {
+            return positions.length;
+        }
+
+        long position(int chunk) {
+            return positions[chunk];
+        }
+
+        long end(int chunk) {
+            return Math.min(length, (chunk + 1) * chunkSize) - 1;
+        }
+
+        void update(int chunk, long position) throws IOException {
+            positions[chunk] = position;
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putLong(position).flip();
+            channel.write(buffer, positionsOffset + 8L * chunk);
+        }
+
+        /**
+         * 服务端文件已变化，作废进度，下次从头下载
+         */
+        void invalidate() throws IOException {
+            channel.truncate(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+}
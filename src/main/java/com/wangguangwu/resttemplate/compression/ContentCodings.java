@@ -0,0 +1,76 @@
+package com.wangguangwu.resttemplate.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 支持的 Content-Encoding：gzip、deflate（zlib 格式）
+ *
+ * @author wangguangwu
+ */
+public final class ContentCodings {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    public static final String ACCEPT_ENCODING = GZIP + ", " + DEFLATE;
+
+    private ContentCodings() {
+    }
+
+    /**
+     * 是否为 gzip 或 deflate，x-gzip 视同 gzip
+     */
+    public static boolean isSupported(String contentEncoding) {
+        return normalize(contentEncoding) != null;
+    }
+
+    /**
+     * 按 Content-Encoding 包装解压流
+     */
+    public static InputStream decode(InputStream inputStream, String contentEncoding) throws IOException {
+        String coding = normalize(contentEncoding);
+        if (GZIP.equals(coding)) {
+            return new GZIPInputStream(inputStream, 8192);
+        }
+        if (DEFLATE.equals(coding)) {
+            return new InflaterInputStream(inputStream);
+        }
+        throw new IOException("不支持的 Content-Encoding: " + contentEncoding);
+    }
+
+    /**
+     * 压缩整个字节数组
+     */
+    public static byte[] encode(byte[] body, String contentEncoding) throws IOException {
+        String coding = normalize(contentEncoding);
+        if (coding == null) {
+            throw new IOException("不支持的 Content-Encoding: " + contentEncoding);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, body.length / 4));
+        try (OutputStream encoder = GZIP.equals(coding) ? new GZIPOutputStream(out, 8192) : new DeflaterOutputStream(out)) {
+            encoder.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static String normalize(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        String coding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+            return GZIP;
+        }
+        return DEFLATE.equals(coding) ? DEFLATE : null;
+    }
+
+}
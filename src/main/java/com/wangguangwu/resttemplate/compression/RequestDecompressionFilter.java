@@ -0,0 +1,200 @@
+package com.wangguangwu.resttemplate.compression;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 解压 Content-Encoding 为 gzip/deflate 的请求体，接口方法读到的是解压后的内容
+ * <p>
+ * 解压后的大小超过 rest.compression.max-request-size 时中断读取，防止压缩炸弹；
+ * 由容器解析的 multipart、表单参数不经过该过滤器，仍需发送未压缩的请求体
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    private final long maxRequestSize;
+
+    public RequestDecompressionFilter(@Value("${rest.compression.max-request-size:100MB}") DataSize maxRequestSize) {
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding.trim())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!ContentCodings.isSupported(contentEncoding)) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "不支持的 Content-Encoding: " + contentEncoding);
+            return;
+        }
+        filterChain.doFilter(new DecompressingRequest(request, contentEncoding, maxRequestSize), response);
+    }
+
+    /**
+     * 请求体替换为解压流，并去掉 Content-Encoding 和 Content-Length
+     */
+    private static class DecompressingRequest extends HttpServletRequestWrapper {
+
+        private final String contentEncoding;
+
+        private final long maxRequestSize;
+
+        private ServletInputStream inputStream;
+
+        private BufferedReader reader;
+
+        DecompressingRequest(HttpServletRequest request, String contentEncoding, long maxRequestSize) {
+            super(request);
+            this.contentEncoding = contentEncoding;
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new LimitedInputStream(
+                        ContentCodings.decode(super.getInputStream(), contentEncoding), maxRequestSize);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(DecompressingRequest::isHidden);
+            return Collections.enumeration(names);
+        }
+
+        private static boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+
+    }
+
+    /**
+     * 解压后的字节数超过上限时抛出异常
+     */
+    private static class LimitedInputStream extends ServletInputStream {
+
+        private final InputStream delegate;
+
+        private final long limit;
+
+        private long count;
+
+        private boolean finished;
+
+        LimitedInputStream(InputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b == -1) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read == -1) {
+                finished = true;
+            } else {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
+
+        private void count(int read) throws IOException {
+            count += read;
+            if (count > limit) {
+                throw new IOException("请求体解压后超过上限: " + limit + " bytes");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.wangguangwu.resttemplate.config;
+
+import com.wangguangwu.resttemplate.json.Fastjson2HttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * json 消息转换器，默认使用 Jackson
+ * <p>
+ * rest.json.converter=fastjson2 时注册 fastjson2 转换器，Spring Boot 会把它放在 Jackson 之前，
+ * 同时用于服务端和由 RestTemplateBuilder 构建的 RestTemplate
+ *
+ * @author wangguangwu
+ */
+@Configuration
+@ConditionalOnProperty(name = "rest.json.converter", havingValue = "fastjson2")
+public class JsonConverterConfig {
+
+    @Bean
+    public Fastjson2HttpMessageConverter fastjson2HttpMessageConverter() {
+        return new Fastjson2HttpMessageConverter();
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.wangguangwu.resttemplate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * RestTemplate 连接池配置
+ *
+ * @author wangguangwu
+ */
+@Data
+@ConfigurationProperties(prefix = "rest.client")
+public class RestClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个路由（host:port）的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 空闲连接保活时间，服务端 Keep-Alive 头给出的时间更短时以服务端为准
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    /**
+     * 连接的最大存活时间，超过后不再复用，0 表示不限制
+     */
+    private Duration timeToLive = Duration.ofMinutes(5);
+
+    /**
+     * 空闲超过该时间的连接由后台线程关闭
+     */
+    private Duration idleEviction = Duration.ofSeconds(30);
+
+    /**
+     * 空闲超过该时间的连接在复用前先检查是否可用
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /**
+     * 建立连接超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 读取响应超时时间
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 从连接池获取连接的超时时间
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * 并行批量调用配置
+     */
+    private Parallel parallel = new Parallel();
+
+    /**
+     * 客户端 HTTP 缓存配置
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * 请求体压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 截止时间、重试、对冲请求和熔断配置
+     */
+    private Resilience resilience = new Resilience();
+
+    @Data
+    public static class Parallel {
+
+        /**
+         * 每批请求的最大并发数
+         */
+        private int maxConcurrency = 32;
+
+        /**
+         * 单个请求的超时时间
+         */
+        private Duration callTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 平台线程池大小
+         */
+        private int threads = 32;
+
+        /**
+         * JVM 支持时是否使用虚拟线程
+         */
+        private boolean virtualThreads = true;
+
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否为 RestTemplate 启用 HTTP 缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 内存中响应体的总大小上限
+         */
+        private DataSize maxMemorySize = DataSize.ofMegabytes(64);
+
+        /**
+         * 单个响应体保存在内存中的大小上限，超过时写入磁盘
+         */
+        private DataSize maxMemoryBodySize = DataSize.ofMegabytes(1);
+
+        /**
+         * 磁盘缓存目录，不配置时只使用内存
+         */
+        private Path diskDirectory;
+
+        /**
+         * 磁盘中响应体的总大小上限
+         */
+        private DataSize maxDiskSize = DataSize.ofGigabytes(1);
+
+    }
+
+    @Data
+    public static class Compression {
+
+        /**
+         * 是否为 RestTemplate 启用请求体 gzip 压缩和响应体解压
+         */
+        private boolean enabled = false;
+
+        /**
+         * 请求体不小于该大小时才压缩，太小的请求体压缩后收益有限
+         */
+        private DataSize minRequestSize = DataSize.ofKilobytes(2);
+
+    }
+
+    @Data
+    public static class Resilience {
+
+        /**
+         * 没有外层截止时间时，一次调用（含重试和对冲请求）的总超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(10);
+
+        /**
+         * 幂等请求失败后的最大重试次数
+         */
+        private int maxRetries = 2;
+
+        /**
+         * 重试退避的基准时间，第 n 次重试在 [0, min(maxBackoff, backoff * 2^n)] 内随机等待
+         */
+        private Duration backoff = Duration.ofMillis(50);
+
+        /**
+         * 重试退避的上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(1);
+
+        /**
+         * GET 请求是否发送对冲请求
+         */
+        private boolean hedging = true;
+
+        /**
+         * 请求耗时超过该分位数仍未返回时发送对冲请求
+         */
+        private double hedgePercentile = 0.95;
+
+        /**
+         * 耗时样本不足时使用的对冲延迟
+         */
+        private Duration hedgeDelay = Duration.ofMillis(100);
+
+        /**
+         * 执行对冲请求的平台线程池大小
+         */
+        private int threads = 32;
+
+        /**
+         * JVM 支持时是否使用虚拟线程执行对冲请求
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * 打开熔断器的失败率
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 统计失败率的窗口大小（调用次数）
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * 熔断器打开后经过多久开始探测
+         */
+        private Duration openDuration = Duration.ofSeconds(5);
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.wangguangwu.resttemplate.config;
+
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import com.wangguangwu.resttemplate.client.CompressionInterceptor;
+import com.wangguangwu.resttemplate.client.HttpCacheInterceptor;
+import com.wangguangwu.resttemplate.client.HttpCacheStore;
+import com.wangguangwu.resttemplate.client.ParallelRestTemplate;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.metrics.MetricsClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.metrics.MetricsRegistry;
+import com.wangguangwu.resttemplate.resilience.ResilientRestTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 由 Spring 管理的、使用连接池的 RestTemplate
+ *
+ * @author wangguangwu
+ */
+@Configuration
+@EnableConfigurationProperties(RestClientProperties.class)
+public class RestTemplateConfig {
+
+    /**
+     * 请求体不在内存中缓冲，JsonStreamCallbacks 生成的 NDJSON、multipart 上传边生成边发送，
+     * 长度未知的请求体使用 chunked 编码
+     */
+    @Bean
+    public PooledClientHttpRequestFactory pooledClientHttpRequestFactory(RestClientProperties properties) {
+        PooledClientHttpRequestFactory requestFactory = new PooledClientHttpRequestFactory(properties);
+        requestFactory.setBufferRequestBody(false);
+        return requestFactory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rest.client.cache.enabled", havingValue = "true")
+    public HttpCacheInterceptor httpCacheInterceptor(RestClientProperties properties) {
+        RestClientProperties.Cache cache = properties.getCache();
+        return new HttpCacheInterceptor(new HttpCacheStore(cache.getMaxMemorySize().toBytes(),
+                cache.getMaxMemoryBodySize().toBytes(), cache.getDiskDirectory(), cache.getMaxDiskSize().toBytes()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rest.client.compression.enabled", havingValue = "true")
+    public CompressionInterceptor compressionInterceptor(RestClientProperties properties) {
+        return new CompressionInterceptor((int) properties.getCompression().getMinRequestSize().toBytes());
+    }
+
+    /**
+     * 拦截器按缓存、压缩的顺序执行，缓存中保存的是解压后的响应体；指标在拦截器之后的 ClientHttpRequestFactory 中记录。
+     * 启用缓存或压缩时 RestTemplate 会先在内存中攒齐请求体，默认都不启用，请求体可以流式发送
+     * <p>
+     * reactive 模式下 Spring Boot 不提供 RestTemplateBuilder，此时使用默认的 builder
+     */
+    @Bean
+    public RestTemplate restTemplate(ObjectProvider<RestTemplateBuilder> restTemplateBuilder,
+                                     PooledClientHttpRequestFactory requestFactory,
+                                     ObjectProvider<HttpCacheInterceptor> httpCacheInterceptor,
+                                     ObjectProvider<CompressionInterceptor> compressionInterceptor,
+                                     MetricsRegistry metricsRegistry) {
+        RestTemplateBuilder builder = restTemplateBuilder.getIfAvailable(RestTemplateBuilder::new)
+                .requestFactory(() -> requestFactory);
+        HttpCacheInterceptor cache = httpCacheInterceptor.getIfAvailable();
+        if (cache != null) {
+            builder = builder.additionalInterceptors(cache);
+        }
+        CompressionInterceptor compression = compressionInterceptor.getIfAvailable();
+        if (compression != null) {
+            builder = builder.additionalInterceptors(compression);
+        }
+        RestTemplate restTemplate = builder.build();
+        MetricsClientHttpRequestFactory.instrument(restTemplate, metricsRegistry);
+        return restTemplate;
+    }
+
+    @Bean
+    public ParallelRestTemplate parallelRestTemplate(RestTemplate restTemplate, RestClientProperties properties) {
+        RestClientProperties.Parallel parallel = properties.getParallel();
+        return new ParallelRestTemplate(restTemplate,
+                ClientExecutors.newExecutor("parallel-rest", parallel.getThreads(), parallel.isVirtualThreads()),
+                parallel.getMaxConcurrency(), parallel.getCallTimeout());
+    }
+
+    @Bean
+    public ResilientRestTemplate resilientRestTemplate(RestTemplate restTemplate, RestClientProperties properties) {
+        RestClientProperties.Resilience resilience = properties.getResilience();
+        return new ResilientRestTemplate(restTemplate,
+                ClientExecutors.newExecutor("resilient-rest", resilience.getThreads(), resilience.isVirtualThreads()),
+                resilience);
+    }
+
+}
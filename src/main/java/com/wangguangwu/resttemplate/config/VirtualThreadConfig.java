@@ -0,0 +1,112 @@
+package com.wangguangwu.resttemplate.config;
+
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用虚拟线程处理 servlet 请求：rest.server.virtual-threads=true 时开启
+ * <p>
+ * Tomcat 的每个请求、以及 StreamingResponseBody 等异步处理都在新的虚拟线程中执行，
+ * 并发请求数不再受 server.tomcat.threads.max（默认 200）限制，只受 server.tomcat.max-connections 限制。
+ * 虚拟线程需要 JDK 21+，通过反射创建；JVM 不支持时只打印警告，仍使用 Tomcat 自己的线程池。
+ * <p>
+ * Tomcat 不会关闭外部传入的线程池，所以在 Web 服务器停止（包括优雅停机）之后的生命周期阶段再关闭：
+ * 先等待正在执行的请求和异步任务结束，超时后才中断
+ *
+ * @author wangguangwu
+ */
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "rest.server.virtual-threads", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer, SmartLifecycle {
+
+    /**
+     * 等待正在执行的任务结束的最长时间
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    /**
+     * JVM 不支持虚拟线程时为 null
+     */
+    private final ExecutorService executor;
+
+    private volatile boolean running;
+
+    public VirtualThreadConfig() {
+        if (ClientExecutors.virtualThreadsSupported()) {
+            this.executor = ClientExecutors.newExecutor("rest-server", 1, true);
+        } else {
+            log.warn("当前 JVM 不支持虚拟线程，rest.server.virtual-threads 不生效");
+            this.executor = null;
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executor != null) {
+            configurer.setTaskExecutor(new ConcurrentTaskExecutor(executor));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("虚拟线程中的任务 {} 秒内未结束，中断执行", SHUTDOWN_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 停止时阶段越大越先停止：优雅停机为 SMART_LIFECYCLE_PHASE，停止 Web 服务器为 SMART_LIFECYCLE_PHASE - 1，
+     * 这里排在两者之后
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.wangguangwu.resttemplate.config;
+
+import com.wangguangwu.resttemplate.cache.ResponseCacheInterceptor;
+import com.wangguangwu.resttemplate.metrics.MetricsHandlerInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC 拦截器
+ * <p>
+ * 指标拦截器在最前面，命中响应缓存直接返回的请求也会被记录
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final MetricsHandlerInterceptor metricsHandlerInterceptor;
+
+    private final ResponseCacheInterceptor responseCacheInterceptor;
+
+    public WebMvcConfig(MetricsHandlerInterceptor metricsHandlerInterceptor,
+                        ResponseCacheInterceptor responseCacheInterceptor) {
+        this.metricsHandlerInterceptor = metricsHandlerInterceptor;
+        this.responseCacheInterceptor = responseCacheInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsHandlerInterceptor);
+        registry.addInterceptor(responseCacheInterceptor);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.batch.BatchDispatcher;
+import com.wangguangwu.resttemplate.dto.BatchRequest;
+import com.wangguangwu.resttemplate.dto.BatchResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * 批量请求：一次往返执行多个子请求
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("rest")
+public class BatchController {
+
+    private final BatchDispatcher batchDispatcher;
+
+    public BatchController(BatchDispatcher batchDispatcher) {
+        this.batchDispatcher = batchDispatcher;
+    }
+
+    /**
+     * 子请求在服务端并行执行，结果按请求顺序以 json 数组返回
+     */
+    @PostMapping("/batch")
+    public List<BatchResponse> batch(@RequestBody List<BatchRequest> requests,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) throws InterruptedException {
+        return batchDispatcher.dispatch(requests, request, response);
+    }
+
+}
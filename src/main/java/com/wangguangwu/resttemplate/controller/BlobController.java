@@ -0,0 +1,104 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.dto.BlobInfo;
+import com.wangguangwu.resttemplate.file.BlobStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * 内容寻址存储：按 sha256 查询、上传和释放文件，下载使用 /rest/download?sha256=
+ * <p>
+ * 客户端先计算 sha256，再用 HEAD 或带 If-None-Match 的 PUT 确认服务端是否已有该内容，已有时不必上传
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("rest")
+public class BlobController {
+
+    private final BlobStore blobStore;
+
+    public BlobController(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * 查询文件，HEAD 请求即为预检：存在时返回 200，否则返回 404
+     */
+    @GetMapping("/blobs/{sha256}")
+    public ResponseEntity<BlobInfo> find(@PathVariable("sha256") String sha256) throws IOException {
+        BlobInfo blob = blobStore.find(sha256);
+        if (blob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(sha256).body(blob);
+    }
+
+    /**
+     * 上传请求体并增加一次引用，内容的 sha256 必须与路径一致；请求体为 application/octet-stream，
+     * 表单类型的请求体会先被 FormContentFilter 读取
+     * <ul>
+     *     <li>带 If-None-Match（* 或 "sha256"）且内容已存在时返回 412，不读取请求体，也不增加引用</li>
+     *     <li>不带 If-None-Match 且内容已存在时直接增加引用并返回 200，不读取请求体；
+     *     客户端发送 Expect: 100-continue 时请求体不会被发出</li>
+     *     <li>内容不存在时保存请求体，返回 201</li>
+     * </ul>
+     */
+    @PutMapping(value = "/blobs/{sha256}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<BlobInfo> store(@PathVariable("sha256") String sha256,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          HttpServletRequest request) throws IOException {
+        if (!BlobStore.isSha256(sha256)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ifNoneMatch != null && blobStore.getPath(sha256) != null && matches(ifNoneMatch, sha256)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(sha256).build();
+        }
+        BlobInfo retained = blobStore.retain(sha256);
+        if (retained != null) {
+            return ResponseEntity.ok().eTag(sha256).body(retained);
+        }
+        try {
+            BlobInfo stored = blobStore.store(request.getInputStream(), sha256);
+            return ResponseEntity.status(stored.isStored() ? HttpStatus.CREATED : HttpStatus.OK).eTag(sha256).body(stored);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 释放一次引用，引用次数为 0 时删除文件
+     */
+    @DeleteMapping("/blobs/{sha256}")
+    public ResponseEntity<Long> release(@PathVariable("sha256") String sha256) throws IOException {
+        long references = blobStore.release(sha256);
+        return references < 0 ? ResponseEntity.notFound().build() : ResponseEntity.ok(references);
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * If-None-Match 为 * 或包含该 sha256 的 ETag（强弱均可）
+     */
+    private static boolean matches(String ifNoneMatch, String sha256) {
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || value.equals("\"" + sha256 + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
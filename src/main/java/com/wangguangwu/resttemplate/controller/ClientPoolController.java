@@ -0,0 +1,46 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.client.HttpCacheInterceptor;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.dto.ConnectionPoolStats;
+import com.wangguangwu.resttemplate.dto.HttpCacheStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * RestTemplate 连接池和 HTTP 缓存状态
+ *
+ * @author wangguangwu
+ */
+@RestController
+@RequestMapping("rest")
+public class ClientPoolController {
+
+    private final PooledClientHttpRequestFactory requestFactory;
+
+    private final ObjectProvider<HttpCacheInterceptor> httpCacheInterceptor;
+
+    public ClientPoolController(PooledClientHttpRequestFactory requestFactory,
+                                ObjectProvider<HttpCacheInterceptor> httpCacheInterceptor) {
+        this.requestFactory = requestFactory;
+        this.httpCacheInterceptor = httpCacheInterceptor;
+    }
+
+    @GetMapping("/client/pool")
+    public ConnectionPoolStats pool() {
+        return requestFactory.getPoolStats();
+    }
+
+    /**
+     * 未启用 rest.client.cache.enabled 时返回 404
+     */
+    @GetMapping("/client/cache")
+    public ResponseEntity<HttpCacheStats> cache() {
+        HttpCacheInterceptor interceptor = httpCacheInterceptor.getIfAvailable();
+        return interceptor == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(interceptor.getStats());
+    }
+
+}
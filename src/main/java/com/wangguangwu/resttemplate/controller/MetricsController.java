@@ -0,0 +1,42 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.metrics.MetricsRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Prometheus 文本格式的接口指标和 RestTemplate 调用指标
+ *
+ * @author wangguangwu
+ */
+@RestController
+@RequestMapping("rest")
+public class MetricsController {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry metricsRegistry;
+
+    public MetricsController(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * 返回 ResponseEntity 而不是直接写 HttpServletResponse，servlet 和 reactive 模式下都可以使用
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() throws IOException {
+        StringWriter writer = new StringWriter(4096);
+        metricsRegistry.writePrometheus(writer);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PROMETHEUS_CONTENT_TYPE))
+                .body(writer.toString());
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.cache.ResponseCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 数据变化后清除响应缓存
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("rest")
+public class ResponseCacheController {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheController(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * 不传 path 时清除所有缓存，否则清除请求路径以 path 开头的缓存，如 /rest/getList
+     */
+    @DeleteMapping("/cache")
+    public void invalidate(@RequestParam(value = "path", required = false) String path) {
+        if (path == null) {
+            responseCache.invalidateAll();
+        } else {
+            responseCache.invalidate(path);
+        }
+    }
+
+}
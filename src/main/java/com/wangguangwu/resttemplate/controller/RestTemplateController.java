@@ -1,22 +1,52 @@
 package com.wangguangwu.resttemplate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.cache.CacheableResponse;
+import com.wangguangwu.resttemplate.dto.BlobInfo;
 import com.wangguangwu.resttemplate.dto.RestDto;
 import com.wangguangwu.resttemplate.dto.UserDto;
+import com.wangguangwu.resttemplate.file.BlobStore;
+import com.wangguangwu.resttemplate.file.DigestingChannel;
+import com.wangguangwu.resttemplate.file.FileCache;
+import com.wangguangwu.resttemplate.file.FileTransfer;
+import com.wangguangwu.resttemplate.file.MultipartStreamReader;
+import com.wangguangwu.resttemplate.file.PartProcessor;
+import com.wangguangwu.resttemplate.file.ZipWriter;
+import com.wangguangwu.resttemplate.header.CapturedHeaders;
+import com.wangguangwu.resttemplate.header.HeaderCapture;
+import com.wangguangwu.resttemplate.json.JsonSpool;
+import com.wangguangwu.resttemplate.json.JsonStreamReader;
+import com.wangguangwu.resttemplate.json.JsonStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.Resource;
+import org.springframework.http.*;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author wangguangwu
  */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("rest")
 @SuppressWarnings("all")
@@ -25,8 +55,24 @@ public class RestTemplateController {
     @Value("${file.Path}")
     String filePath;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    FileCache fileCache;
+
+    @Autowired
+    HeaderCapture headerCapture;
+
+    @Autowired
+    BlobStore blobStore;
+
+    @Autowired
+    PartProcessor partProcessor;
+
 
     @GetMapping("/get")
+    @CacheableResponse
     public RestDto get() {
         return new RestDto(1, "Hello World");
     }
@@ -36,53 +82,112 @@ public class RestTemplateController {
         return new RestDto(id, name);
     }
 
+    /**
+     * 返回 count 个元素，默认 2 个；count 越大响应体越大，超过 server.compression.min-response-size 时会被压缩
+     */
     @GetMapping("/getList")
-    public List<RestDto> getList() {
-        return Arrays.asList(
-                new RestDto(1, "Hello World"),
-                new RestDto(2, "Hello China")
-        );
+    @CacheableResponse
+    public List<RestDto> getList(@RequestParam(value = "count", defaultValue = "2") int count) {
+        Assert.isTrue(count >= 0 && count <= 1000, "count 必须在 0 到 1000 之间");
+        List<RestDto> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            list.add(new RestDto(i, i % 2 == 1 ? "Hello World" : "Hello China"));
+        }
+        return list;
     }
 
     /**
-     * 下载绝对路径下的文件
+     * 下载绝对路径下的文件，或传入 sha256 下载内容寻址存储中的文件
+     * <p>
+     * 支持 Range/If-Range：单个区间返回 206 + Content-Range，多个区间返回 206 + multipart/byteranges
      */
     @GetMapping("/download")
-    public HttpEntity<InputStreamResource> download(@RequestParam("filename") String filename) {
+    public ResponseEntity<?> download(@RequestParam(value = "filename", required = false) String filename,
+                                      @RequestParam(value = "sha256", required = false) String sha256,
+                                      @RequestHeader HttpHeaders requestHeaders) {
+        if (sha256 != null) {
+            return downloadBlob(sha256, filename);
+        }
+        Assert.notNull(filename, "filename 和 sha256 不能都为空");
+        FileCache.CachedFile file = fileCache.get(filename);
+        Assert.notNull(file, "文件不存在");
+        // 设置 header
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + filename);
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        if (file.getPath() != null) {
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(file.getEtag());
+            headers.setLastModified(file.getLastModified());
+            if (requestHeaders.getFirst(HttpHeaders.RANGE) != null && ifRangeMatches(requestHeaders, file)) {
+                // 返回 Resource 时由 Spring MVC 按 Range 截取为 ResourceRegion，
+                // 写出 206/416 以及 Content-Range、multipart/byteranges
+                Resource resource = file.getContent() != null
+                        ? new ByteArrayResource(file.getContent()) : new FileSystemResource(file.getPath());
+                return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+            }
+        }
+        if (file.getLength() >= 0) {
+            // available() 只是可无阻塞读取的字节数，大文件时并不等于文件长度
+            headers.setContentLength(file.getLength());
+        }
+        if (file.getContent() != null) {
+            // 热点小文件直接写出缓存的字节，不再打开文件
+            return new ResponseEntity<>(file.getContent(), headers, HttpStatus.OK);
+        }
         // 获取文件流
         InputStream inputStream = getInputStream(filename);
         Assert.notNull(inputStream, "文件为空");
         // 将文件流封装为 InputStreamResource 对象
         InputStreamResource inputStreamResource = new InputStreamResource(inputStream);
-        // 设置 header
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + filename);
-        try {
-            headers.setContentLength(inputStream.available());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
         // 构建 http 报文
-        return new HttpEntity<>(inputStreamResource, headers);
+        return new ResponseEntity<>(inputStreamResource, headers, HttpStatus.OK);
+    }
+
+    /**
+     * 打包下载多个文件，文件的查找方式与 {@link #download} 相同
+     * <p>
+     * 边读文件边写 zip，见 {@link ZipWriter}；stored=true 时不压缩
+     */
+    @GetMapping("/download/zip")
+    public ResponseEntity<StreamingResponseBody> zipDownload(@RequestParam("filename") List<String> filenames,
+                                                             @RequestParam(value = "stored", defaultValue = "false") boolean stored) {
+        // 先确认所有文件都存在，响应开始写出后就无法再返回错误状态码
+        Map<String, FileCache.CachedFile> files = new LinkedHashMap<>();
+        for (String filename : filenames) {
+            FileCache.CachedFile file = fileCache.get(filename);
+            Assert.notNull(file, "文件不存在: " + filename);
+            files.putIfAbsent(ZipWriter.entryName(filename), file);
+        }
+        StreamingResponseBody body = outputStream -> ZipWriter.write(outputStream, files, stored);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=files.zip")
+                .body(body);
+    }
+
+    /**
+     * 零拷贝下载绝对路径下的文件
+     * <p>
+     * 文件内容不经过 JVM 堆，由 sendfile 或 FileChannel#transferTo 直接写入 socket
+     */
+    @GetMapping("/download/zeroCopy")
+    public void zeroCopyDownload(@RequestParam("filename") String filename,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        FileCache.CachedFile file = fileCache.get(filename);
+        Assert.isTrue(file != null && file.getPath() != null, "文件不存在");
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + filename);
+        FileTransfer.transfer(request, response, file.getPath(), 0, file.getLength());
     }
 
     /**
      * 解析请求头
      */
     @GetMapping("/header")
-    public Map<String, List<String>> header(HttpServletRequest request) {
-        Map<String, List<String>> header = new LinkedHashMap<>();
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String name = headerNames.nextElement();
-            Enumeration<String> values = request.getHeaders(name);
-            List<String> list = new ArrayList<>();
-            while (values.hasMoreElements()) {
-                list.add(values.nextElement());
-            }
-            header.put(name, list);
-        }
-        return header;
+    public CapturedHeaders header(HttpServletRequest request) {
+        return headerCapture.capture(request);
     }
 
     @GetMapping("/getAll/{path1}/{path2}")
@@ -94,18 +199,7 @@ public class RestTemplateController {
         result.put("path1", path1);
         result.put("path2", path2);
         // 请求头
-        Map<String, List<String>> header = new LinkedHashMap<>();
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String name = headerNames.nextElement();
-            Enumeration<String> values = request.getHeaders(name);
-            List<String> list = new ArrayList<>();
-            while (values.hasMoreElements()) {
-                list.add(values.nextElement());
-            }
-            header.put(name, list);
-        }
-        result.put("header", header);
+        result.put("header", headerCapture.capture(request));
         return result;
     }
 
@@ -113,22 +207,119 @@ public class RestTemplateController {
     //===================================私有方法========================================
 
     /**
-     * 判断文件是绝对路径下获取还是相对路径
+     * 下载内容寻址存储中的文件；内容不会变化，ETag 即 sha256，可以长期缓存
+     */
+    private ResponseEntity<?> downloadBlob(String sha256, String filename) {
+        Path path = blobStore.getPath(sha256);
+        Assert.notNull(path, "文件不存在");
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + (filename != null ? filename : sha256));
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag("\"" + sha256 + "\"");
+        headers.setCacheControl("public, max-age=31536000, immutable");
+        return new ResponseEntity<>(new FileSystemResource(path), headers, HttpStatus.OK);
+    }
+
+    /**
+     * 边读 part 边计算 sha256 并保存到内容寻址存储中
+     */
+    private BlobInfo storeBlob(MultipartFile file) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return blobStore.store(inputStream);
+        }
+    }
+
+    /**
+     * 每解析出一个 RestDto 就写入临时文件，读完请求体后再写回，见 {@link JsonSpool}
+     */
+    private ResponseEntity<StreamingResponseBody> streamRestDtos(InputStream inputStream, boolean ndjson) throws IOException {
+        JsonSpool<RestDto> spool = new JsonSpool<>(objectMapper, ndjson);
+        try {
+            JsonStreamReader.forEach(objectMapper, inputStream, RestDto.class, spool::write);
+            spool.finish();
+        } catch (IOException | RuntimeException e) {
+            spool.delete();
+            throw e;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try {
+                spool.copyTo(outputStream);
+            } finally {
+                spool.delete();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .contentLength(spool.getSize())
+                .body(body);
+    }
+
+    /**
+     * 将当前 part 写入 file.Path 下的同名文件，写入失败时删除不完整的文件
+     */
+    private Map<String, String> storePart(MultipartStreamReader reader, String filename,
+                                          ByteBuffer buffer) throws IOException {
+        // 只保留文件名，防止路径穿越
+        String name = StringUtils.getFilename(StringUtils.cleanPath(filename));
+        Assert.isTrue(StringUtils.hasText(name) && !"..".equals(name), "文件名不合法");
+        Path target = Paths.get(filePath).resolve(name);
+        DigestingChannel channel = new DigestingChannel(FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        try (DigestingChannel ignored = channel) {
+            buffer.clear();
+            while (reader.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        fileCache.invalidate(name);
+        Map<String, String> fileMetaData = new LinkedHashMap<>();
+        fileMetaData.put("文件名", name);
+        fileMetaData.put("文件类型", String.valueOf(reader.getHeaders().getContentType()));
+        fileMetaData.put("文件大小(byte)", String.valueOf(channel.getSize()));
+        fileMetaData.put("sha256", channel.getSha256());
+        return fileMetaData;
+    }
+
+    /**
+     * If-Range 不存在，或与当前文件的强 ETag / Last-Modified 一致时才按区间返回，否则返回整个文件
+     */
+    private boolean ifRangeMatches(HttpHeaders requestHeaders, FileCache.CachedFile file) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range 只能使用强校验
+            return ifRange.equals(file.getEtag());
+        }
+        try {
+            long date = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            return date / 1000 == file.getLastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 判断文件是绝对路径下获取还是相对路径，路径解析和热点文件内容由 {@link FileCache} 缓存
      *
      * @param filename filename
      * @return inputStream
      */
     private InputStream getInputStream(String filename) {
-        filename = filename.startsWith(File.separator) ? filename : File.separator + filename;
-        File file1 = new File(filePath + filename);
-        File file2 = new File(filename);
-        Assert.isTrue(file1.exists() || file2.exists(), "文件不存在");
-        // 判断是绝对路径文件还是相对路径文件
+        FileCache.CachedFile file = fileCache.get(filename);
+        Assert.notNull(file, "文件不存在");
         try {
-            return file1.exists() ?
-                    new BufferedInputStream(new FileInputStream(file1)) :
-                    this.getClass().getResourceAsStream(filename);
-        } catch (FileNotFoundException e) {
+            return file.getContent() != null ? file.openStream() : new BufferedInputStream(file.openStream());
+        } catch (IOException e) {
             // Ignore
             e.printStackTrace();
         }
@@ -140,25 +331,61 @@ public class RestTemplateController {
         return restDto;
     }
 
+    /**
+     * 上传文件，内容保存到内容寻址存储中，相同内容只保存一份
+     */
     @PostMapping("/upload")
-    public Map<String, String> upload(@RequestParam("file") MultipartFile file) {
+    public Map<String, String> upload(@RequestParam("file") MultipartFile file) throws IOException {
+        BlobInfo blob = storeBlob(file);
         Map<String, String> fileMetaData = new LinkedHashMap<>();
         fileMetaData.put("文件名", file.getOriginalFilename());
         fileMetaData.put("文件类型", file.getContentType());
         fileMetaData.put("文件大小(byte)", String.valueOf(file.getSize()));
+        fileMetaData.put("sha256", blob.getSha256());
+        fileMetaData.put("引用次数", String.valueOf(blob.getReferences()));
         return fileMetaData;
     }
 
     /**
-     * 复杂的表单：包含了普通元素、多文件
+     * 流式上传：不经过 MultipartResolver，边解析请求体边把文件写入 file.Path 下，同时计算大小和 SHA-256
+     * <p>
+     * 依赖 spring.servlet.multipart.resolve-lazily=true，否则请求体会在进入方法前被容器解析
+     */
+    @PostMapping("/upload/stream")
+    public List<Map<String, String>> streamUpload(HttpServletRequest request) throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(request.getInputStream(), request.getContentType());
+        List<Map<String, String>> result = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (reader.nextPart()) {
+            String filename = reader.getContentDisposition().getFilename();
+            // 普通表单字段直接跳过
+            if (!StringUtils.hasText(filename)) {
+                continue;
+            }
+            result.add(storePart(reader, filename, buffer));
+        }
+        return result;
+    }
+
+    /**
+     * 复杂的表单：包含了普通元素、多文件，文件内容保存到内容寻址存储中
+     * <p>
+     * 各文件由 {@link PartProcessor} 并行保存，任意一个文件失败时整个请求失败
      */
     @PostMapping("/complexForm")
-    public Map<String, String> complexForm(UserDto userDto) {
+    public Map<String, String> complexForm(UserDto userDto) throws IOException {
         Map<String, String> result = new LinkedHashMap<>();
         result.put("name", userDto.getName());
         result.put("headImage", userDto.getHeadImage().getOriginalFilename());
         result.put("idImageList", Arrays.toString(userDto.getIdImageList().stream().
                 map(MultipartFile::getOriginalFilename).toArray()));
+        List<MultipartFile> files = new ArrayList<>(userDto.getIdImageList().size() + 1);
+        files.add(userDto.getHeadImage());
+        files.addAll(userDto.getIdImageList());
+        List<BlobInfo> blobs = partProcessor.process(files, this::storeBlob);
+        result.put("headImageSha256", blobs.get(0).getSha256());
+        result.put("idImageSha256List", blobs.subList(1, blobs.size()).stream()
+                .map(BlobInfo::getSha256).collect(Collectors.toList()).toString());
         return result;
     }
 
@@ -172,4 +399,17 @@ public class RestTemplateController {
         return list;
     }
 
+    /**
+     * 流式处理 NDJSON 请求体：逐个解析 RestDto，内存占用与列表长度无关
+     * <p>
+     * 元素先写入临时文件，读完请求体后再写回，先发完请求体再读响应的客户端不会与服务端互相等待；
+     * Accept 为 application/json 时写回 json 数组，否则写回 NDJSON；
+     * 请求体为 application/json 时仍由 {@link #postForList(List)} 处理，保持原有行为
+     */
+    @PostMapping(value = "/postForList", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> postForListNdjson(HttpServletRequest request) throws IOException {
+        return streamRestDtos(request.getInputStream(), JsonStreamWriter.prefersNdjson(request.getHeader(HttpHeaders.ACCEPT)));
+    }
+
 }
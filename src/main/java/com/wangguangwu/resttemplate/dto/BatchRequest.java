@@ -0,0 +1,40 @@
+package com.wangguangwu.resttemplate.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 批量请求中的一个子请求
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequest {
+
+    /**
+     * 请求方式，默认 GET
+     */
+    private String method = "GET";
+
+    /**
+     * 请求路径，可以带查询参数，如 /rest/get/1/hello、/rest/download?filename=test.txt
+     */
+    private String path;
+
+    /**
+     * 请求头
+     */
+    private Map<String, String> headers;
+
+    /**
+     * 请求体，按 json 发送给对应的接口
+     */
+    private JsonNode body;
+
+}
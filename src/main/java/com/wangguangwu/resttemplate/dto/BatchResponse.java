@@ -0,0 +1,46 @@
+package com.wangguangwu.resttemplate.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 批量请求中一个子请求的响应
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResponse {
+
+    /**
+     * 响应体为 Base64 字符串
+     */
+    public static final String BASE64 = "base64";
+
+    /**
+     * 响应状态码
+     */
+    private int status;
+
+    /**
+     * 响应头
+     */
+    private Map<String, String> headers;
+
+    /**
+     * 响应体，json 响应原样嵌入，文本类型作为字符串，其他类型（如 cbor、smile、文件）作为 Base64 字符串
+     */
+    @JsonRawValue
+    private String body;
+
+    /**
+     * 响应体的编码，Base64 时为 {@link #BASE64}，否则为 null
+     */
+    private String encoding;
+
+}
@@ -0,0 +1,37 @@
+package com.wangguangwu.resttemplate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 内容寻址存储中的文件
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlobInfo {
+
+    /**
+     * 内容的 SHA-256，也是文件的标识
+     */
+    private String sha256;
+
+    /**
+     * 文件大小（字节）
+     */
+    private long size;
+
+    /**
+     * 引用次数，为 0 时文件被删除
+     */
+    private long references;
+
+    /**
+     * 本次请求是否写入了新文件，内容已存在时为 false
+     */
+    private boolean stored;
+
+}
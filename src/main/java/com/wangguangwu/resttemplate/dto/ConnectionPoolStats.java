@@ -0,0 +1,47 @@
+package com.wangguangwu.resttemplate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 连接池状态
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPoolStats {
+
+    /**
+     * 正在使用的连接数
+     */
+    private int leased;
+
+    /**
+     * 空闲连接数
+     */
+    private int idle;
+
+    /**
+     * 等待获取连接的请求数
+     */
+    private int pending;
+
+    /**
+     * 最大连接数
+     */
+    private int max;
+
+    /**
+     * 累计新建的连接数
+     */
+    private long created;
+
+    /**
+     * 距上次统计以来每秒新建的连接数
+     */
+    private double createdPerSecond;
+
+}
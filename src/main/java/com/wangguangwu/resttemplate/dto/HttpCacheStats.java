@@ -0,0 +1,52 @@
+package com.wangguangwu.resttemplate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 客户端 HTTP 缓存状态
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpCacheStats {
+
+    /**
+     * 缓存新鲜、未发送请求的次数
+     */
+    private long hits;
+
+    /**
+     * 没有可用缓存的次数
+     */
+    private long misses;
+
+    /**
+     * 发送条件请求重新验证的次数
+     */
+    private long revalidations;
+
+    /**
+     * 重新验证返回 304、复用缓存响应体的次数
+     */
+    private long notModified;
+
+    /**
+     * 缓存条目数
+     */
+    private int entries;
+
+    /**
+     * 内存中响应体的总字节数
+     */
+    private long memoryBytes;
+
+    /**
+     * 磁盘中响应体的总字节数
+     */
+    private long diskBytes;
+
+}
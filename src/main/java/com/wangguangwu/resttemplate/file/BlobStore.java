@@ -0,0 +1,229 @@
+package com.wangguangwu.resttemplate.file;
+
+import com.wangguangwu.resttemplate.dto.BlobInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * 按内容寻址的文件存储，相同内容只保存一份
+ * <p>
+ * 文件保存在 file.blob.directory（默认 file.Path/.blobs）下的 sha256 前两位/sha256，
+ * 旁边的 sha256.refs 记录引用次数。写入时先经过 {@link DigestingChannel} 写到临时文件，边读边计算 SHA-256，
+ * 读完后内容已存在则删除临时文件、引用次数加一，否则原子地移动到目标位置；引用次数减到 0 时删除文件。
+ * 同一个 sha256 的提交、引用和释放按分段锁串行执行
+ *
+ * @author wangguangwu
+ */
+@Component
+public class BlobStore {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String REFS_SUFFIX = ".refs";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    private final Path tmp;
+
+    private final Object[] locks = new Object[64];
+
+    public BlobStore(@Value("${file.blob.directory:${file.Path}/.blobs}") String directory) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        this.tmp = root.resolve("tmp");
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 是否为合法的 sha256（64 位小写十六进制），不合法的值不会被当作路径使用
+     */
+    public static boolean isSha256(String sha256) {
+        return sha256 != null && SHA256.matcher(sha256).matches();
+    }
+
+    /**
+     * 保存输入流的内容并增加一次引用，不关闭输入流
+     */
+    public BlobInfo store(InputStream inputStream) throws IOException {
+        return store(inputStream, null);
+    }
+
+    /**
+     * 保存输入流的内容并增加一次引用，不关闭输入流
+     *
+     * @param expectedSha256 不为 null 时校验内容的 sha256，不一致时抛出 IllegalArgumentException 且不保存
+     */
+    public BlobInfo store(InputStream inputStream, String expectedSha256) throws IOException {
+        Path temp = createTempFile("blob-");
+        try {
+            DigestingChannel channel = new DigestingChannel(FileChannel.open(temp, StandardOpenOption.WRITE));
+            try (DigestingChannel ignored = channel) {
+                ReadableByteChannel source = Channels.newChannel(inputStream);
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            String sha256 = channel.getSha256();
+            if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+                throw new IllegalArgumentException("内容的 sha256 不一致: " + sha256);
+            }
+            return commit(sha256, temp, channel.getSize());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 内容已存在时增加一次引用，客户端据此跳过上传
+     *
+     * @return 不存在时返回 null
+     */
+    public BlobInfo retain(String sha256) throws IOException {
+        if (!isSha256(sha256)) {
+            return null;
+        }
+        synchronized (lock(sha256)) {
+            Path path = path(sha256);
+            if (!Files.exists(path)) {
+                return null;
+            }
+            long references = writeReferences(sha256, readReferences(sha256) + 1);
+            return new BlobInfo(sha256, Files.size(path), references, false);
+        }
+    }
+
+    /**
+     * 释放一次引用，引用次数为 0 时删除文件
+     *
+     * @return 剩余的引用次数，不存在时返回 -1
+     */
+    public long release(String sha256) throws IOException {
+        if (!isSha256(sha256)) {
+            return -1;
+        }
+        synchronized (lock(sha256)) {
+            Path path = path(sha256);
+            if (!Files.exists(path)) {
+                return -1;
+            }
+            long references = readReferences(sha256) - 1;
+            if (references > 0) {
+                return writeReferences(sha256, references);
+            }
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(refsPath(sha256));
+            return 0;
+        }
+    }
+
+    /**
+     * @return 不存在时返回 null
+     */
+    public BlobInfo find(String sha256) throws IOException {
+        Path path = getPath(sha256);
+        if (path == null) {
+            return null;
+        }
+        try {
+            return new BlobInfo(sha256, Files.size(path), readReferences(sha256), false);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 文件路径，用于下载
+     *
+     * @return 不存在时返回 null
+     */
+    public Path getPath(String sha256) {
+        if (!isSha256(sha256)) {
+            return null;
+        }
+        Path path = path(sha256);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    //===================================私有方法========================================
+
+    private BlobInfo commit(String sha256, Path temp, long size) throws IOException {
+        synchronized (lock(sha256)) {
+            Path path = path(sha256);
+            if (Files.exists(path)) {
+                return new BlobInfo(sha256, size, writeReferences(sha256, readReferences(sha256) + 1), false);
+            }
+            Files.createDirectories(path.getParent());
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            return new BlobInfo(sha256, size, writeReferences(sha256, 1), true);
+        }
+    }
+
+    private Path path(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path refsPath(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256 + REFS_SUFFIX);
+    }
+
+    /**
+     * 文件存在但没有引用记录时（如手动放入的文件）按 1 次引用处理
+     */
+    private long readReferences(String sha256) throws IOException {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(refsPath(sha256)), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程中途退出时不会留下写了一半的引用次数
+     */
+    private long writeReferences(String sha256, long references) throws IOException {
+        Path temp = createTempFile("refs-");
+        try {
+            Files.write(temp, String.valueOf(references).getBytes(StandardCharsets.US_ASCII));
+            Files.move(temp, refsPath(sha256), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return references;
+    }
+
+    /**
+     * 临时文件与目标文件在同一文件系统中，才能原子移动；目录在第一次写入时创建
+     */
+    private Path createTempFile(String prefix) throws IOException {
+        Files.createDirectories(tmp);
+        return Files.createTempFile(tmp, prefix, ".tmp");
+    }
+
+    private Object lock(String sha256) {
+        return locks[(sha256.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+}
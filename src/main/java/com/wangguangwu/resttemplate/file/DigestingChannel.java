@@ -0,0 +1,82 @@
+package com.wangguangwu.resttemplate.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 写入时同步计算摘要和长度的 Channel，一次写入即可同时得到文件大小和 SHA-256
+ *
+ * @author wangguangwu
+ */
+public class DigestingChannel implements WritableByteChannel {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final WritableByteChannel delegate;
+
+    private final MessageDigest digest;
+
+    private long size;
+
+    public DigestingChannel(WritableByteChannel delegate) {
+        this.delegate = delegate;
+        this.digest = sha256();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        // 先写入，再对实际写入的字节计算摘要（部分写入时只计算已写入的部分）；duplicate 记下写入前的 position，不影响 src
+        ByteBuffer view = src.duplicate();
+        int written = delegate.write(src);
+        view.limit(view.position() + written);
+        digest.update(view);
+        size += written;
+        return written;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 已写入内容的 SHA-256，调用后摘要被重置
+     */
+    public String getSha256() {
+        return toHex(digest.digest());
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // JDK 必须提供 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,373 @@
+package com.wangguangwu.resttemplate.file;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * file.Path 下文件的解析和内容缓存
+ * <p>
+ * 文件名到路径、长度、修改时间、ETag 的映射缓存在内存中；不超过 max-file-size 的文件内容也读入内存，
+ * 以不可变字节数组的形式复用，总字节数超过 max-size 时淘汰最久未访问的内容。
+ * file.Path 下的文件发生变化时由 WatchService 清除对应缓存；不在 file.Path 下的文件只从 classpath 的 static/ 目录读取，
+ * 不会下载到类文件、配置文件等其他资源
+ *
+ * @author wangguangwu
+ */
+@Slf4j
+@Component
+public class FileCache implements DisposableBean {
+
+    /**
+     * 允许下载的 classpath 资源前缀
+     */
+    private static final String CLASSPATH_PREFIX = "static/";
+
+    private final Path root;
+
+    private final long maxSize;
+
+    private final long maxFileSize;
+
+    private final int maxEntries;
+
+    private final Map<String, CachedFile> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong contentBytes = new AtomicLong();
+
+    /**
+     * 每次清除缓存加一，用于丢弃加载期间文件已变化的结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+
+    public FileCache(@Value("${file.Path}") String filePath,
+                     @Value("${file.cache.max-size:64MB}") DataSize maxSize,
+                     @Value("${file.cache.max-file-size:1MB}") DataSize maxFileSize,
+                     @Value("${file.cache.max-entries:10000}") int maxEntries) {
+        this.root = Paths.get(filePath).toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxEntries = maxEntries;
+        startWatching();
+    }
+
+    /**
+     * 按文件名获取文件，先在 file.Path 下查找，再从 classpath 的 static/ 目录查找
+     *
+     * @return 文件不存在时返回 null
+     */
+    public CachedFile get(String filename) {
+        String name = normalize(filename);
+        CachedFile cached = entries.get(name);
+        if (cached != null) {
+            cached.lastAccess = System.nanoTime();
+            return cached;
+        }
+        long currentGeneration = generation.get();
+        CachedFile loaded;
+        try {
+            loaded = load(name);
+        } catch (IOException e) {
+            log.warn("读取文件失败: {}", name, e);
+            return null;
+        }
+        if (loaded == null) {
+            return null;
+        }
+        if (entries.size() < maxEntries || evictEntries()) {
+            if (entries.putIfAbsent(name, loaded) == null) {
+                contentBytes.addAndGet(loaded.contentSize());
+                if (generation.get() != currentGeneration) {
+                    // 加载期间有文件变化，不确定是否为本文件，保守地丢弃
+                    invalidate(name);
+                }
+                evictContent();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 清除文件名对应的缓存，文件名为目录时清除目录下所有缓存
+     */
+    public void invalidate(String filename) {
+        generation.incrementAndGet();
+        String name = normalize(filename);
+        entries.entrySet().removeIf(entry -> {
+            String key = entry.getKey();
+            if (key.equals(name) || key.startsWith(name + "/")) {
+                contentBytes.addAndGet(-entry.getValue().contentSize());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        contentBytes.set(0);
+    }
+
+    /**
+     * 缓存的文件内容总字节数
+     */
+    public long getContentBytes() {
+        return contentBytes.get();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * 统一为不以 / 开头、以 / 分隔的相对路径
+     */
+    private static String normalize(String filename) {
+        String name = StringUtils.cleanPath(filename.replace(File.separatorChar, '/'));
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        return name;
+    }
+
+    private CachedFile load(String name) throws IOException {
+        Path path = root.resolve(name).normalize();
+        // 不允许通过 .. 读取 file.Path 之外的文件
+        if (path.startsWith(root) && Files.isRegularFile(path)) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long length = attributes.size();
+            byte[] content = length <= maxFileSize ? Files.readAllBytes(path) : null;
+            if (content != null && content.length != length) {
+                // 读取期间文件被修改，不缓存内容
+                content = null;
+            }
+            return new CachedFile(path, null, length, attributes.lastModifiedTime().toMillis(), content);
+        }
+        // name 已经过 cleanPath，static/../ 之类的路径无法绕过前缀检查
+        if (!name.startsWith(CLASSPATH_PREFIX)) {
+            return null;
+        }
+        String resource = "/" + name;
+        if (getClass().getResource(resource) == null) {
+            return null;
+        }
+        // classpath 中的文件不会变化，直接读入内存
+        try (InputStream inputStream = getClass().getResourceAsStream(resource)) {
+            byte[] content = readAtMost(inputStream, maxFileSize);
+            if (content != null) {
+                return new CachedFile(null, null, content.length, -1, content);
+            }
+        }
+        return new CachedFile(null, resource, -1, -1, null);
+    }
+
+    private static byte[] readAtMost(InputStream inputStream, long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > limit) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 内容总字节数超过上限时，丢弃最久未访问的文件内容（元数据一并丢弃，下次访问重新加载）
+     */
+    private synchronized void evictContent() {
+        if (contentBytes.get() <= maxSize) {
+            return;
+        }
+        List<Map.Entry<String, CachedFile>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<String, CachedFile> candidate : candidates) {
+            if (contentBytes.get() <= maxSize) {
+                break;
+            }
+            if (candidate.getValue().contentSize() > 0 && entries.remove(candidate.getKey(), candidate.getValue())) {
+                contentBytes.addAndGet(-candidate.getValue().contentSize());
+            }
+        }
+    }
+
+    /**
+     * 条目数达到上限时淘汰最久未访问的一半
+     */
+    private synchronized boolean evictEntries() {
+        if (entries.size() < maxEntries) {
+            return true;
+        }
+        List<Map.Entry<String, CachedFile>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<String, CachedFile> candidate : candidates.subList(0, candidates.size() / 2 + 1)) {
+            if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                contentBytes.addAndGet(-candidate.getValue().contentSize());
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private void startWatching() {
+        if (!Files.isDirectory(root)) {
+            log.warn("{} 不存在，不监听文件变化", root);
+            return;
+        }
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            registerAll(root);
+        } catch (IOException e) {
+            log.warn("监听 {} 失败，文件缓存不会自动失效", root, e);
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "file-cache-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void registerAll(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW || directory == null) {
+                    invalidateAll();
+                    continue;
+                }
+                Path changed = directory.resolve((Path) event.context());
+                invalidate(root.relativize(changed).toString());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerAll(changed);
+                    } catch (IOException e) {
+                        log.warn("监听 {} 失败", changed, e);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 缓存的文件，内容和元数据不可变
+     */
+    public static final class CachedFile {
+
+        private final Path path;
+
+        private final String classpathResource;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private final byte[] content;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        CachedFile(Path path, String classpathResource, long length, long lastModified, byte[] content) {
+            this.path = path;
+            this.classpathResource = classpathResource;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        /**
+         * file.Path 下的文件路径，classpath 中的文件返回 null
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * 文件长度，未知时返回 -1
+         */
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * 由修改时间和长度生成强 ETag，classpath 中的文件返回 null
+         */
+        public String getEtag() {
+            return path == null ? null
+                    : "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        }
+
+        /**
+         * 缓存的文件内容，调用方不能修改；未缓存时返回 null
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        public InputStream openStream() throws IOException {
+            if (content != null) {
+                return new ByteArrayInputStream(content);
+            }
+            if (path != null) {
+                return Files.newInputStream(path);
+            }
+            return CachedFile.class.getResourceAsStream(classpathResource);
+        }
+
+        private long contentSize() {
+            return content != null ? content.length : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.wangguangwu.resttemplate.file;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件传输，容器支持时零拷贝
+ * <p>
+ * 容器支持 sendfile 时（Tomcat NIO/NIO2/APR），把文件交给容器由内核直接写 socket，这是唯一的零拷贝路径；
+ * 否则退化为 {@link FileChannel#transferTo} 写入 ServletOutputStream 包装的通道。目标不是 socket 或文件通道时，
+ * JDK 先把文件读入临时缓冲区，再经 {@link Channels#newChannel} 的堆内数组写入容器的输出缓冲区，
+ * 和用输入流复制一样有用户态拷贝，并不是零拷贝
+ *
+ * @author wangguangwu
+ */
+public final class FileTransfer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileTransfer() {
+    }
+
+    /**
+     * 将文件的 [start, start + count) 区间写入响应体，调用方负责设置状态码和其他响应头
+     *
+     * @param request  request
+     * @param response response
+     * @param path     文件路径
+     * @param start    起始偏移
+     * @param count    字节数
+     */
+    public static void transfer(HttpServletRequest request, HttpServletResponse response,
+                                Path path, long start, long count) throws IOException {
+        response.setContentLengthLong(count);
+        if (count == 0) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由容器在请求结束后通过 sendfile 发送
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        ServletOutputStream outputStream = response.getOutputStream();
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transferTo(fileChannel, start, count, Channels.newChannel(outputStream));
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * transferTo 单次调用可能只传输部分数据，需要循环直到写完
+     */
+    public static void transferTo(FileChannel fileChannel, long start, long count,
+                                  WritableByteChannel target) throws IOException {
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("文件在传输过程中被截断: " + position + "/" + end);
+            }
+            position += transferred;
+        }
+    }
+
+}
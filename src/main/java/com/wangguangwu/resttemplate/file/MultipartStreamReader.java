@@ -0,0 +1,276 @@
+package com.wangguangwu.resttemplate.file;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 增量解析 multipart/form-data 请求体
+ * <p>
+ * 只持有一个固定大小的缓冲区，依次返回每个 part 的请求头，
+ * part 的内容通过 {@link #read(ByteBuffer)} 边读边交给调用方，不在内存或临时文件中缓存
+ *
+ * <pre>
+ * MultipartStreamReader reader = new MultipartStreamReader(inputStream, contentType);
+ * while (reader.nextPart()) {
+ *     while (reader.read(buffer) != -1) { ... }
+ * }
+ * </pre>
+ *
+ * @author wangguangwu
+ */
+public class MultipartStreamReader {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * 单个 part 请求头的最大长度
+     */
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+
+    /**
+     * 分隔符：\r\n--boundary
+     */
+    private final byte[] delimiter;
+
+    private final byte[] buffer;
+
+    private int head;
+
+    private int tail;
+
+    private boolean eof;
+
+    /**
+     * 当前 part 的内容是否已读完，第一个分隔符之前的前导内容视为未读完的 part
+     */
+    private boolean partFinished;
+
+    /**
+     * 是否已读到结束分隔符 --boundary--
+     */
+    private boolean finished;
+
+    private HttpHeaders partHeaders;
+
+    /**
+     * @param inputStream 请求体
+     * @param contentType 请求的 Content-Type，需要包含 boundary 参数
+     */
+    public MultipartStreamReader(InputStream inputStream, String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        String boundary = mediaType.getParameter("boundary");
+        if (!MediaType.MULTIPART_FORM_DATA.includes(mediaType) || boundary == null) {
+            throw new IllegalArgumentException("不是合法的 multipart/form-data 请求: " + contentType);
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        this.inputStream = inputStream;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, MAX_HEADER_SIZE + delimiter.length * 2)];
+        // 第一个分隔符前没有 \r\n，预置后即可与后续分隔符统一处理
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.tail = 2;
+    }
+
+    /**
+     * 跳到下一个 part 并解析它的请求头
+     *
+     * @return 没有更多 part 时返回 false
+     */
+    public boolean nextPart() throws IOException {
+        if (finished) {
+            return false;
+        }
+        // 丢弃当前 part 中未读完的内容（第一次调用时丢弃前导内容）
+        if (!partFinished) {
+            int available;
+            while ((available = bodyAvailable()) != -1) {
+                head += available;
+                compactAndFill();
+            }
+            partFinished = true;
+        }
+        // 分隔符之后是 -- 表示结束，否则是 \r\n 加请求头
+        fill(2);
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            partHeaders = null;
+            return false;
+        }
+        skipLine();
+        partHeaders = readHeaders();
+        partFinished = false;
+        return true;
+    }
+
+    /**
+     * 当前 part 的请求头
+     */
+    public HttpHeaders getHeaders() {
+        return partHeaders;
+    }
+
+    /**
+     * 当前 part 的 Content-Disposition
+     */
+    public ContentDisposition getContentDisposition() {
+        String value = partHeaders.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+        return value == null ? ContentDisposition.empty() : ContentDisposition.parse(value);
+    }
+
+    /**
+     * 读取当前 part 的内容到 target
+     *
+     * @return 读取的字节数，当前 part 已读完时返回 -1
+     */
+    public int read(ByteBuffer target) throws IOException {
+        if (partFinished || partHeaders == null) {
+            return -1;
+        }
+        int available;
+        while ((available = bodyAvailable()) == 0) {
+            compactAndFill();
+        }
+        if (available < 0) {
+            partFinished = true;
+            return -1;
+        }
+        int length = Math.min(available, target.remaining());
+        target.put(buffer, head, length);
+        head += length;
+        return length;
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * 当前缓冲区中可以安全交给调用方的 part 内容长度
+     *
+     * @return 紧接着就是分隔符时跳过分隔符并返回 -1
+     */
+    private int bodyAvailable() throws IOException {
+        int index = indexOfDelimiter();
+        if (index == head) {
+            head += delimiter.length;
+            return -1;
+        }
+        if (index > head) {
+            return index - head;
+        }
+        if (eof) {
+            throw new EOFException("multipart 请求体不完整");
+        }
+        // 末尾可能是分隔符的前半部分，需要保留
+        return Math.max(0, tail - head - (delimiter.length - 1));
+    }
+
+    private int indexOfDelimiter() {
+        int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private HttpHeaders readHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        int size = 0;
+        while (true) {
+            int end = indexOfCrlf(head);
+            if (end < 0) {
+                if (size + tail - head > MAX_HEADER_SIZE) {
+                    throw new IOException("multipart 请求头过长");
+                }
+                if (eof) {
+                    throw new EOFException("multipart 请求头不完整");
+                }
+                compactAndFill();
+                continue;
+            }
+            size += end - head + CRLF.length;
+            String line = new String(buffer, head, end - head, StandardCharsets.UTF_8);
+            head = end + CRLF.length;
+            if (line.isEmpty()) {
+                return headers;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int end;
+        while ((end = indexOfCrlf(head)) < 0) {
+            if (eof) {
+                throw new EOFException("multipart 请求体不完整");
+            }
+            // 分隔符后的空白填充
+            head = Math.max(head, tail - 1);
+            compactAndFill();
+        }
+        head = end + CRLF.length;
+    }
+
+    private int indexOfCrlf(int from) {
+        for (int i = from; i < tail - 1; i++) {
+            if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 保证缓冲区中至少有 n 个未读字节
+     */
+    private void fill(int n) throws IOException {
+        while (tail - head < n) {
+            if (eof) {
+                throw new EOFException("multipart 请求体不完整");
+            }
+            compactAndFill();
+        }
+    }
+
+    /**
+     * 把未读数据移到缓冲区头部，再从输入流读取一次
+     */
+    private void compactAndFill() throws IOException {
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            head = 0;
+        }
+        if (eof || tail == buffer.length) {
+            return;
+        }
+        int read = inputStream.read(buffer, tail, buffer.length - tail);
+        if (read == -1) {
+            eof = true;
+        } else {
+            tail += read;
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.wangguangwu.resttemplate.file;
+
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 并行处理多文件表单中的每个文件（计算摘要、保存等）
+ * <p>
+ * 所有请求共用 rest.parts.threads 个线程，单个请求同时处理的文件不超过 rest.parts.max-concurrency 个：
+ * 一个文件处理完再提交下一个，请求之间不会互相挤占；结果按文件的原始顺序返回。
+ * 任意一个文件处理失败时立即取消其余文件并抛出该异常；只有一个文件或并发数为 1 时直接在请求线程中处理
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class PartProcessor implements DisposableBean {
+
+    private final ExecutorService executor;
+
+    private final int maxConcurrency;
+
+    @Value("${rest.parts.max-parts:100}")
+    int maxParts;
+
+    @Value("${rest.parts.timeout:60s}")
+    Duration timeout;
+
+    public PartProcessor(@Value("${rest.parts.threads:16}") int threads,
+                         @Value("${rest.parts.virtual-threads:${rest.server.virtual-threads:false}}") boolean virtualThreads,
+                         @Value("${rest.parts.max-concurrency:4}") int maxConcurrency) {
+        Assert.isTrue(maxConcurrency > 0, "并发数必须大于 0");
+        this.executor = ClientExecutors.newExecutor("rest-parts", threads, virtualThreads);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 处理所有文件
+     *
+     * @return 与 parts 顺序一致的结果
+     */
+    public <T, R> List<R> process(List<T> parts, PartTask<T, R> task) throws IOException {
+        Assert.isTrue(parts.size() <= maxParts, "文件数量超过上限: " + maxParts);
+        if (parts.size() <= 1 || maxConcurrency == 1) {
+            List<R> result = new ArrayList<>(parts.size());
+            for (T part : parts) {
+                result.add(task.apply(part));
+            }
+            return result;
+        }
+        return new Batch<>(parts, task).run();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 处理单个文件
+     */
+    @FunctionalInterface
+    public interface PartTask<T, R> {
+
+        R apply(T part) throws IOException;
+
+    }
+
+    /**
+     * 一个请求中的所有文件：请求线程等待任意一个文件完成后再提交下一个
+     */
+    private class Batch<T, R> {
+
+        private final List<T> parts;
+
+        private final PartTask<T, R> task;
+
+        private final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+
+        private final List<Future<Integer>> futures;
+
+        private final Object[] results;
+
+        private int next;
+
+        Batch(List<T> parts, PartTask<T, R> task) {
+            this.parts = parts;
+            this.task = task;
+            this.futures = new ArrayList<>(parts.size());
+            this.results = new Object[parts.size()];
+        }
+
+        @SuppressWarnings("unchecked")
+        List<R> run() throws IOException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            try {
+                int initial = Math.min(maxConcurrency, parts.size());
+                for (int i = 0; i < initial; i++) {
+                    submitNext();
+                }
+                for (int completed = 0; completed < parts.size(); completed++) {
+                    Future<Integer> future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        throw new IllegalStateException("处理文件超时: " + timeout);
+                    }
+                    // 失败时 get 抛出 ExecutionException，进入 finally 取消其余文件
+                    future.get();
+                    submitNext();
+                }
+                return (List<R>) Arrays.asList(results);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("处理文件时被中断", e);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            } finally {
+                for (Future<Integer> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private void submitNext() {
+            if (next >= parts.size()) {
+                return;
+            }
+            int index = next++;
+            T part = parts.get(index);
+            futures.add(completionService.submit(() -> {
+                results[index] = task.apply(part);
+                return index;
+            }));
+        }
+
+        private IOException rethrow(Throwable cause) {
+            if (cause instanceof IOException) {
+                return (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return new IOException(cause);
+        }
+
+    }
+
+}
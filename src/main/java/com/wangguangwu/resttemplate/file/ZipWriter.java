@@ -0,0 +1,129 @@
+package com.wangguangwu.resttemplate.file;
+
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 把多个文件边读边写成 zip，不在内存中缓存整个压缩包
+ * <p>
+ * stored=true 时不压缩，适合图片、压缩包等已压缩的文件。STORED 条目要在数据之前给出大小和 CRC32，
+ * 为保证两者与写出的数据一致，已缓存内容的文件直接使用内存中的内容，其他文件边计算 CRC32 边复制到临时文件，
+ * 再从临时文件写出，读取期间文件被修改也不会生成损坏的压缩包；压缩时不生成临时文件
+ *
+ * @author wangguangwu
+ */
+public final class ZipWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ZipWriter() {
+    }
+
+    /**
+     * zip 中的条目名：去掉开头的 /，保留子目录
+     */
+    public static String entryName(String filename) {
+        String name = StringUtils.cleanPath(filename.replace(File.separatorChar, '/'));
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        return name;
+    }
+
+    /**
+     * 按顺序写入所有文件，不关闭输出流；出错时不写中央目录，客户端不会把截断的内容当成完整的压缩包
+     *
+     * @param files 条目名 -> 文件
+     */
+    public static void write(OutputStream outputStream, Map<String, FileCache.CachedFile> files, boolean stored)
+            throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(outputStream));
+        zip.setMethod(stored ? ZipOutputStream.STORED : ZipOutputStream.DEFLATED);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (Map.Entry<String, FileCache.CachedFile> entry : files.entrySet()) {
+            writeEntry(zip, entry.getKey(), entry.getValue(), stored, buffer);
+        }
+        zip.close();
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * 写入一个 zip 条目
+     */
+    private static void writeEntry(ZipOutputStream zip, String name, FileCache.CachedFile file,
+                                   boolean stored, byte[] buffer) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(name);
+        if (file.getLastModified() > 0) {
+            zipEntry.setTime(file.getLastModified());
+        }
+        if (!stored) {
+            zip.putNextEntry(zipEntry);
+            try (InputStream inputStream = file.openStream()) {
+                copy(inputStream, zip, buffer);
+            }
+            zip.closeEntry();
+            return;
+        }
+        byte[] content = file.getContent();
+        if (content != null) {
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length);
+            putStoredEntry(zip, zipEntry, content.length, crc.getValue());
+            zip.write(content);
+            zip.closeEntry();
+            return;
+        }
+        Path snapshot = Files.createTempFile("zip-entry-", ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream inputStream = file.openStream();
+                 OutputStream outputStream = Files.newOutputStream(snapshot)) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    outputStream.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            putStoredEntry(zip, zipEntry, size, crc.getValue());
+            try (InputStream inputStream = Files.newInputStream(snapshot)) {
+                copy(inputStream, zip, buffer);
+            }
+            zip.closeEntry();
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * STORED 模式要求在写数据之前给出大小和 CRC32
+     */
+    private static void putStoredEntry(ZipOutputStream zip, ZipEntry zipEntry, long size, long crc)
+            throws IOException {
+        zipEntry.setSize(size);
+        zipEntry.setCompressedSize(size);
+        zipEntry.setCrc(crc);
+        zip.putNextEntry(zipEntry);
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream, byte[] buffer) throws IOException {
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+    }
+
+}
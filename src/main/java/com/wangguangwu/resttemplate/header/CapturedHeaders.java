@@ -0,0 +1,210 @@
+package com.wangguangwu.resttemplate.header;
+
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.annotation.JSONType;
+import com.alibaba.fastjson2.writer.ObjectWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求头的 json 视图，序列化为 {"name": ["value", ...]}，与原来返回的 Map&lt;String, List&lt;String&gt;&gt; 相同
+ * <p>
+ * 序列化时才遍历容器中的请求头，直接写入 Jackson 的 JsonGenerator 或 fastjson2 的 JSONWriter，不复制到中间集合；
+ * 因此只能在请求线程内、请求结束前序列化，作为接口返回值或其中的字段正好满足这一点
+ *
+ * @author wangguangwu
+ */
+@JSONType(serializer = CapturedHeaders.Fastjson2Writer.class)
+public abstract class CapturedHeaders implements JsonSerializable {
+
+    private final HeaderCapture capture;
+
+    CapturedHeaders(HeaderCapture capture) {
+        this.capture = capture;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(this);
+        forEach(new JacksonVisitor(generator));
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+            throws IOException {
+        WritableTypeId typeId = typeSerializer.writeTypePrefix(generator,
+                typeSerializer.typeId(this, JsonToken.START_OBJECT));
+        forEach(new JacksonVisitor(generator));
+        typeSerializer.writeTypeSuffix(generator, typeId);
+    }
+
+    /**
+     * 按出现顺序访问通过过滤的请求头，同名请求头的多个值连续访问
+     */
+    abstract void forEach(Visitor visitor) throws IOException;
+
+    boolean accept(String name) {
+        return capture.accept(name);
+    }
+
+    /**
+     * servlet 请求：通过 getHeaderNames/getHeaders 直接读取容器保存的请求头
+     */
+    static class ServletHeaders extends CapturedHeaders {
+
+        private final HttpServletRequest request;
+
+        ServletHeaders(HeaderCapture capture, HttpServletRequest request) {
+            super(capture);
+            this.request = request;
+        }
+
+        @Override
+        void forEach(Visitor visitor) throws IOException {
+            Enumeration<String> names = request.getHeaderNames();
+            if (names == null) {
+                return;
+            }
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                if (!accept(name)) {
+                    continue;
+                }
+                visitor.name(name);
+                Enumeration<String> values = request.getHeaders(name);
+                while (values.hasMoreElements()) {
+                    visitor.value(values.nextElement());
+                }
+                visitor.end();
+            }
+        }
+
+    }
+
+    /**
+     * reactive 请求：遍历 HttpHeaders
+     */
+    static class HttpHeadersView extends CapturedHeaders {
+
+        private final HttpHeaders headers;
+
+        HttpHeadersView(HeaderCapture capture, HttpHeaders headers) {
+            super(capture);
+            this.headers = headers;
+        }
+
+        @Override
+        void forEach(Visitor visitor) throws IOException {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (!accept(entry.getKey())) {
+                    continue;
+                }
+                visitor.name(entry.getKey());
+                for (String value : entry.getValue()) {
+                    visitor.value(value);
+                }
+                visitor.end();
+            }
+        }
+
+    }
+
+    interface Visitor {
+
+        void name(String name) throws IOException;
+
+        void value(String value) throws IOException;
+
+        void end() throws IOException;
+
+    }
+
+    private static class JacksonVisitor implements Visitor {
+
+        private final JsonGenerator generator;
+
+        JacksonVisitor(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void name(String name) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void value(String value) throws IOException {
+            generator.writeString(value);
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeEndArray();
+        }
+
+    }
+
+    /**
+     * rest.json.converter=fastjson2 时使用
+     */
+    public static class Fastjson2Writer implements ObjectWriter<CapturedHeaders> {
+
+        @Override
+        public void write(JSONWriter jsonWriter, Object object, Object fieldName, Type fieldType, long features) {
+            if (object == null) {
+                jsonWriter.writeNull();
+                return;
+            }
+            jsonWriter.startObject();
+            try {
+                ((CapturedHeaders) object).forEach(new Visitor() {
+
+                    private boolean first;
+
+                    @Override
+                    public void name(String name) {
+                        jsonWriter.writeName(name);
+                        jsonWriter.writeColon();
+                        jsonWriter.startArray();
+                        first = true;
+                    }
+
+                    @Override
+                    public void value(String value) {
+                        if (!first) {
+                            jsonWriter.writeComma();
+                        }
+                        first = false;
+                        jsonWriter.writeString(value);
+                    }
+
+                    @Override
+                    public void end() {
+                        jsonWriter.endArray();
+                    }
+
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            jsonWriter.endObject();
+        }
+
+    }
+
+}
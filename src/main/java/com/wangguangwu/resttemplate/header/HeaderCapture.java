@@ -0,0 +1,65 @@
+package com.wangguangwu.resttemplate.header;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+
+/**
+ * 把请求头作为接口返回值，/rest/header 和 /rest/getAll 共用
+ * <p>
+ * rest.header.include 不为空时只返回其中的请求头，rest.header.exclude 中的请求头不返回（如 cookie、authorization），
+ * 名称不区分大小写；返回的 {@link CapturedHeaders} 序列化时直接读取请求头，不构建 Map 和 List
+ *
+ * @author wangguangwu
+ */
+@Component
+public class HeaderCapture {
+
+    private final String[] include;
+
+    private final String[] exclude;
+
+    public HeaderCapture(@Value("${rest.header.include:}") String[] include,
+                         @Value("${rest.header.exclude:}") String[] exclude) {
+        this.include = clean(include);
+        this.exclude = clean(exclude);
+    }
+
+    public CapturedHeaders capture(HttpServletRequest request) {
+        return new CapturedHeaders.ServletHeaders(this, request);
+    }
+
+    public CapturedHeaders capture(HttpHeaders headers) {
+        return new CapturedHeaders.HttpHeadersView(this, headers);
+    }
+
+    /**
+     * 是否返回该请求头
+     */
+    public boolean accept(String name) {
+        return (include.length == 0 || contains(include, name)) && !contains(exclude, name);
+    }
+
+    //===================================私有方法========================================
+
+    private static boolean contains(String[] names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] clean(String[] names) {
+        return Arrays.stream(names)
+                .map(String::trim)
+                .filter(StringUtils::hasText)
+                .toArray(String[]::new);
+    }
+
+}
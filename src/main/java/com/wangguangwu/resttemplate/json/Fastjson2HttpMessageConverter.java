@@ -0,0 +1,134 @@
+package com.wangguangwu.resttemplate.json;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 fastjson2 的 json 消息转换器，可同时用于服务端和 RestTemplate
+ * <p>
+ * 依赖 Jackson 特性的类型（JsonNode、带 Jackson 注解的字段等）仍交给 Jackson 处理
+ *
+ * @author wangguangwu
+ */
+public class Fastjson2HttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private static final String JACKSON_PACKAGE = "com.fasterxml.jackson";
+
+    private final Map<Class<?>, Boolean> supportedTypes = new ConcurrentHashMap<>();
+
+    public Fastjson2HttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        setDefaultCharset(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return supportedTypes.computeIfAbsent(clazz, Fastjson2HttpMessageConverter::isFastjsonType);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return supportsType(ResolvableType.forType(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        ResolvableType resolvableType = type == null ? ResolvableType.forClass(clazz) : ResolvableType.forType(type);
+        return supports(clazz) && supportsType(resolvableType) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return JSON.parseObject(inputMessage.getBody(), charset(inputMessage.getHeaders().getContentType()), type);
+        } catch (JSONException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            JSON.writeTo(outputMessage.getBody(), object);
+        } catch (JSONException e) {
+            throw new HttpMessageNotWritableException("JSON write error: " + e.getMessage(), e);
+        }
+    }
+
+    private Charset charset(MediaType contentType) {
+        return contentType != null && contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 递归检查泛型参数，如 List&lt;RestDto&gt;
+     */
+    private boolean supportsType(ResolvableType type) {
+        Class<?> clazz = type.resolve();
+        if (clazz != null && !supports(clazz)) {
+            return false;
+        }
+        for (ResolvableType generic : type.getGenerics()) {
+            if (!supportsType(generic)) {
+                return false;
+            }
+        }
+        return !type.isArray() || supportsType(type.getComponentType());
+    }
+
+    /**
+     * 字符串、字节数组、文件等交给专门的转换器；依赖 Jackson 注解或类型的类交给 Jackson
+     */
+    private static boolean isFastjsonType(Class<?> clazz) {
+        if (CharSequence.class.isAssignableFrom(clazz) || byte[].class == clazz
+                || Resource.class.isAssignableFrom(clazz) || ResourceRegion.class.isAssignableFrom(clazz)
+                || MultiValueMap.class.isAssignableFrom(clazz) || JsonNode.class.isAssignableFrom(clazz)) {
+            return false;
+        }
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (hasJacksonAnnotation(current.getAnnotations())) {
+                return false;
+            }
+            for (Field field : current.getDeclaredFields()) {
+                if (JsonNode.class.isAssignableFrom(field.getType()) || hasJacksonAnnotation(field.getAnnotations())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasJacksonAnnotation(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType().getName().startsWith(JACKSON_PACKAGE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.wangguangwu.resttemplate.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 把 json 元素逐个写入临时文件，读完请求体后再把文件写回响应
+ * <p>
+ * 边读请求体边写响应时，先发完请求体再读响应的客户端（如 RestTemplate）会在 TCP 缓冲区写满后与服务端互相等待；
+ * 先写入临时文件则内存占用仍与元素个数无关，并且响应有确定的 Content-Length。
+ * 用完后调用 {@link #delete()} 删除临时文件
+ *
+ * @author wangguangwu
+ */
+public class JsonSpool<T> {
+
+    private final Path file;
+
+    private final OutputStream outputStream;
+
+    private final JsonStreamWriter<T> writer;
+
+    private long size = -1;
+
+    /**
+     * @param ndjson 为 true 时写成 NDJSON，否则写成 json 数组
+     */
+    public JsonSpool(ObjectMapper objectMapper, boolean ndjson) throws IOException {
+        this.file = Files.createTempFile("json-spool-", ndjson ? ".ndjson" : ".json");
+        try {
+            this.outputStream = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+            this.writer = new JsonStreamWriter<>(objectMapper, outputStream, ndjson);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    public void write(T element) throws IOException {
+        writer.write(element);
+    }
+
+    /**
+     * 写完所有元素，之后才能读取文件
+     *
+     * @return 文件大小
+     */
+    public long finish() throws IOException {
+        try (OutputStream ignored = outputStream) {
+            writer.close();
+        }
+        size = Files.size(file);
+        return size;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * 文件大小，{@link #finish()} 之前为 -1
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 把文件写入输出流，不关闭输出流
+     */
+    public void copyTo(OutputStream out) throws IOException {
+        Files.copy(file, out);
+    }
+
+    /**
+     * 关闭并删除临时文件，可以重复调用
+     */
+    public void delete() {
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+}
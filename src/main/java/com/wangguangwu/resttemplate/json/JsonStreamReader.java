@@ -0,0 +1,62 @@
+package com.wangguangwu.resttemplate.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 逐个解析 json 元素，内存占用与元素个数无关
+ * <p>
+ * 同时支持 NDJSON（每行一个 json）和 json 数组，根据第一个 token 自动判断
+ *
+ * @author wangguangwu
+ */
+public final class JsonStreamReader {
+
+    private JsonStreamReader() {
+    }
+
+    /**
+     * 处理单个元素，可以抛出 IOException（如边读边写时）
+     */
+    @FunctionalInterface
+    public interface ElementHandler<T> {
+
+        void handle(T element) throws IOException;
+
+    }
+
+    /**
+     * 依次解析 inputStream 中的元素并交给 handler
+     *
+     * @return 元素个数
+     */
+    public static <T> long forEach(ObjectMapper objectMapper, InputStream inputStream, Class<T> type,
+                                   ElementHandler<? super T> handler) throws IOException {
+        long count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return 0;
+            }
+            if (token == JsonToken.START_ARRAY) {
+                // json 数组：逐个读取数组元素
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    handler.handle(objectMapper.readValue(parser, type));
+                    count++;
+                }
+                return count;
+            }
+            // NDJSON：多个根元素
+            do {
+                handler.handle(objectMapper.readValue(parser, type));
+                count++;
+            } while (parser.nextToken() != null);
+        }
+        return count;
+    }
+
+}
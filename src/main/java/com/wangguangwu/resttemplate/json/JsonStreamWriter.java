@@ -0,0 +1,72 @@
+package com.wangguangwu.resttemplate.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 逐个写出 json 元素，写出的内容由 JsonGenerator 缓冲后分批刷到输出流，不会在内存中保留整个列表
+ * <p>
+ * ndjson 为 true 时每个元素一行，否则写成 json 数组
+ *
+ * @author wangguangwu
+ */
+public class JsonStreamWriter<T> implements Closeable {
+
+    private final JsonGenerator generator;
+
+    private final boolean ndjson;
+
+    public JsonStreamWriter(ObjectMapper objectMapper, OutputStream outputStream, boolean ndjson) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        // 输出流由调用方负责关闭
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+        this.ndjson = ndjson;
+        if (!ndjson) {
+            generator.writeStartArray();
+        }
+    }
+
+    /**
+     * 按 Accept 的优先级判断 NDJSON 和 json 数组哪个更合适，未指定时使用 NDJSON
+     */
+    public static boolean prefersNdjson(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return true;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void write(T element) throws IOException {
+        generator.writeObject(element);
+        if (ndjson) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.close();
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的延迟直方图，记录时不加锁、不分配对象
+ * <p>
+ * 桶按对数线性划分：每个 2 的幂区间再等分为 8 个桶，分位数的相对误差不超过 12.5%；
+ * 小于 16ns 的值精确记录，超过 2^41 - 1 ns（约 36 分钟）的值记入最后一个桶
+ *
+ * @author wangguangwu
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 最后一个 2 的幂区间为 [2^40, 2^41) ns，记录的最大值为 2^41 - 1 ns
+     */
+    private static final int MAX_BIT = 40;
+
+    private static final long MAX_VALUE = (1L << (MAX_BIT + 1)) - 1;
+
+    private static final int BUCKETS = (MAX_BIT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts[index(value)].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 所有记录值之和，纳秒
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 分位数，返回所在桶的上界，纳秒；没有记录时返回 0
+     *
+     * @param quantile 0 ~ 1
+     */
+    public long quantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    //===================================私有方法========================================
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriTemplateHandler;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 记录 RestTemplate 调用的请求数、错误数、收发字节数和耗时
+ * <p>
+ * 按 url 模板（如 http://host/rest/get/{id}/{name}）而不是展开后的 url 聚合，模板由 {@link #instrument}
+ * 安装的 UriTemplateHandler 在展开时记下；直接传入 URI 对象的调用按 scheme://host:port/path 聚合。
+ * 包装 ClientHttpRequestFactory 而不是添加拦截器：RestTemplate 有拦截器时会先把请求体攒在内存中，
+ * 包装后流式发送的请求体（NDJSON、multipart 上传）仍然边生成边发送。
+ * 记录的是实际发出的请求，命中 {@code HttpCacheInterceptor} 缓存的调用不计入；
+ * 耗时从创建请求到收到响应头，包含发送请求体，不包含读取响应体
+ *
+ * @author wangguangwu
+ */
+public class MetricsClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private static final ThreadLocal<ExpandedTemplate> URI_TEMPLATE = new ThreadLocal<>();
+
+    private final ClientHttpRequestFactory delegate;
+
+    private final MetricsRegistry registry;
+
+    public MetricsClientHttpRequestFactory(ClientHttpRequestFactory delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    /**
+     * 为 RestTemplate 包装 ClientHttpRequestFactory（在所有拦截器之后），并安装记录 url 模板的 UriTemplateHandler
+     */
+    public static void instrument(RestTemplate restTemplate, MetricsRegistry registry) {
+        // 有拦截器时 getRequestFactory() 返回的是带拦截器的工厂，先取下拦截器拿到原始工厂
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+        restTemplate.getInterceptors().clear();
+        restTemplate.setRequestFactory(new MetricsClientHttpRequestFactory(restTemplate.getRequestFactory(), registry));
+        restTemplate.setInterceptors(interceptors);
+        restTemplate.setUriTemplateHandler(new TemplateRecordingHandler(restTemplate.getUriTemplateHandler()));
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        // 命中缓存的调用不会创建请求，线程变量中可能是之前展开的模板，url 相同时才使用
+        ExpandedTemplate expanded = URI_TEMPLATE.get();
+        URI_TEMPLATE.remove();
+        String template = expanded != null && expanded.uri.equals(uri) ? expanded.template : null;
+        HttpMethod method = httpMethod != null ? httpMethod : HttpMethod.GET;
+        RouteMetrics metrics = registry.client(method, template != null ? template : route(uri));
+        long start = System.nanoTime();
+        try {
+            return new MetricsRequest(delegate.createRequest(uri, httpMethod), metrics, start);
+        } catch (IOException | RuntimeException e) {
+            metrics.record(System.nanoTime() - start, -1, -1, true);
+            throw e;
+        }
+    }
+
+    //===================================私有方法========================================
+
+    private static String route(URI uri) {
+        return uri.getScheme() + "://" + uri.getAuthority() + uri.getRawPath();
+    }
+
+    /**
+     * 统计写出的请求体字节数，执行时记录指标
+     */
+    private static class MetricsRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+        private final ClientHttpRequest delegate;
+
+        private final RouteMetrics metrics;
+
+        private final long start;
+
+        private long bytesOut;
+
+        private OutputStream body;
+
+        MetricsRequest(ClientHttpRequest delegate, RouteMetrics metrics, long start) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+            this.start = start;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            try {
+                ClientHttpResponse response = delegate.execute();
+                metrics.record(System.nanoTime() - start, response.getHeaders().getContentLength(), bytesOut,
+                        response.getRawStatusCode() >= HttpStatus.INTERNAL_SERVER_ERROR.value());
+                return response;
+            } catch (IOException | RuntimeException e) {
+                metrics.record(System.nanoTime() - start, -1, bytesOut, true);
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            if (body == null) {
+                body = counting(delegate.getBody());
+            }
+            return body;
+        }
+
+        /**
+         * 底层请求支持流式请求体时交给它在发送时写出，否则直接写入 {@link #getBody()}
+         */
+        @Override
+        public void setBody(Body body) {
+            if (delegate instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) delegate).setBody(out -> body.writeTo(counting(out)));
+                return;
+            }
+            try {
+                body.writeTo(getBody());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public String getMethodValue() {
+            return delegate.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        private OutputStream counting(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    bytesOut++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    bytesOut += len;
+                }
+            };
+        }
+
+    }
+
+    /**
+     * 展开 url 模板时把模板记在线程变量中，紧接着在同一线程创建的请求由工厂取出
+     */
+    private static class TemplateRecordingHandler implements UriTemplateHandler {
+
+        private final UriTemplateHandler delegate;
+
+        TemplateRecordingHandler(UriTemplateHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public URI expand(String uriTemplate, Map<String, ?> uriVariables) {
+            URI uri = delegate.expand(uriTemplate, uriVariables);
+            URI_TEMPLATE.set(new ExpandedTemplate(uriTemplate, uri));
+            return uri;
+        }
+
+        @Override
+        public URI expand(String uriTemplate, Object... uriVariables) {
+            URI uri = delegate.expand(uriTemplate, uriVariables);
+            URI_TEMPLATE.set(new ExpandedTemplate(uriTemplate, uri));
+            return uri;
+        }
+
+    }
+
+    /**
+     * url 模板及其展开后的 url
+     */
+    private static class ExpandedTemplate {
+
+        private final String template;
+
+        private final URI uri;
+
+        ExpandedTemplate(String template, URI uri) {
+            this.template = template;
+            this.uri = uri;
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import org.apache.catalina.connector.ResponseFacade;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 记录服务端接口的请求数、错误数、收发字节数和耗时
+ * <p>
+ * 同步请求的开始时间保存在线程变量中，不需要为每个请求创建对象；
+ * 异步请求（如 StreamingResponseBody）在切换线程前把开始时间放入请求属性，耗时包含异步处理部分。
+ * 收到的字节数取自 Content-Length，chunked 传输的请求体不计入；
+ * 发出的字节数在 Tomcat 下取应用写出的字节数（压缩前），其他情况取 Content-Length
+ *
+ * @author wangguangwu
+ */
+@Component
+public class MetricsHandlerInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = MetricsHandlerInterceptor.class.getName() + ".START";
+
+    private static final boolean TOMCAT_PRESENT = ClassUtils.isPresent(
+            "org.apache.catalina.connector.ResponseFacade", MetricsHandlerInterceptor.class.getClassLoader());
+
+    private static final ThreadLocal<long[]> START = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final MetricsRegistry registry;
+
+    public MetricsHandlerInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.REQUEST) {
+            START.get()[0] = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, START.get()[0]);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DispatcherType dispatcherType = request.getDispatcherType();
+        if (dispatcherType != DispatcherType.REQUEST && dispatcherType != DispatcherType.ASYNC) {
+            return;
+        }
+        Object asyncStart = request.getAttribute(START_ATTRIBUTE);
+        long start = asyncStart != null ? (Long) asyncStart : START.get()[0];
+        long nanos = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : request.getRequestURI();
+        Object key = handler instanceof HandlerMethod ? ((HandlerMethod) handler).getMethod() : route;
+        registry.server(key, request.getMethod(), route)
+                .record(nanos, request.getContentLengthLong(), bytesWritten(response),
+                        ex != null || response.getStatus() >= 500);
+    }
+
+    private static long bytesWritten(HttpServletResponse response) {
+        // 被包装的响应（如批量请求的子响应）不能取外层响应的计数
+        if (TOMCAT_PRESENT && TomcatResponses.isFacade(response)) {
+            return TomcatResponses.contentWritten(response);
+        }
+        String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 单独放在内部类中，没有 Tomcat 时不会加载 ResponseFacade
+     */
+    private static class TomcatResponses {
+
+        static boolean isFacade(HttpServletResponse response) {
+            return response instanceof ResponseFacade;
+        }
+
+        static long contentWritten(HttpServletResponse response) {
+            return ((ResponseFacade) response).getContentWritten();
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * 服务端接口和 RestTemplate 调用的指标
+ * <p>
+ * 路由第一次出现时创建 {@link RouteMetrics}，之后只是一次无锁的 map 查找；
+ * 路由数超过上限后的新路由统一记入 route="other"，防止 url 中的参数导致指标无限增长
+ *
+ * @author wangguangwu
+ */
+@Component
+public class MetricsRegistry {
+
+    private static final int MAX_ROUTES = 1000;
+
+    private static final String OTHER = "other";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    /**
+     * key 为处理请求的 java.lang.reflect.Method 或路径模板
+     */
+    private final Map<Object, RouteMetrics> serverRoutes = new ConcurrentHashMap<>();
+
+    /**
+     * key 为 url 模板，value 按 HttpMethod 下标存放
+     */
+    private final Map<String, RouteMetrics[]> clientRoutes = new ConcurrentHashMap<>();
+
+    private final RouteMetrics[] serverOther = newRoutes(OTHER);
+
+    private final RouteMetrics[] clientOther = newRoutes(OTHER);
+
+    /**
+     * 服务端路由
+     *
+     * @param key    路由的唯一标识，需要实现 equals/hashCode
+     * @param method 请求方法
+     * @param route  路由第一次出现时作为标签
+     */
+    public RouteMetrics server(Object key, String method, String route) {
+        RouteMetrics metrics = serverRoutes.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (serverRoutes.size() >= MAX_ROUTES) {
+            HttpMethod httpMethod = HttpMethod.resolve(method);
+            return serverOther[httpMethod == null ? 0 : httpMethod.ordinal()];
+        }
+        return serverRoutes.computeIfAbsent(key, k -> new RouteMetrics(method, route));
+    }
+
+    /**
+     * 客户端路由
+     *
+     * @param method 请求方法
+     * @param route  url 模板
+     */
+    public RouteMetrics client(HttpMethod method, String route) {
+        RouteMetrics[] metrics = clientRoutes.get(route);
+        if (metrics == null) {
+            if (clientRoutes.size() >= MAX_ROUTES) {
+                return clientOther[method.ordinal()];
+            }
+            metrics = clientRoutes.computeIfAbsent(route, MetricsRegistry::newRoutes);
+        }
+        return metrics[method.ordinal()];
+    }
+
+    /**
+     * 以 Prometheus 文本格式输出所有指标
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        List<RouteMetrics> server = new ArrayList<>(serverRoutes.values());
+        addUsed(server, serverOther);
+        List<RouteMetrics> client = new ArrayList<>();
+        for (RouteMetrics[] metrics : clientRoutes.values()) {
+            addUsed(client, metrics);
+        }
+        addUsed(client, clientOther);
+        write(writer, "rest_server", "服务端接口", server);
+        write(writer, "rest_client", "RestTemplate 调用", client);
+    }
+
+    //===================================私有方法========================================
+
+    private static RouteMetrics[] newRoutes(String route) {
+        RouteMetrics[] metrics = new RouteMetrics[METHODS.length];
+        for (HttpMethod method : METHODS) {
+            metrics[method.ordinal()] = new RouteMetrics(method.name(), route);
+        }
+        return metrics;
+    }
+
+    private static void addUsed(List<RouteMetrics> target, RouteMetrics[] metrics) {
+        for (RouteMetrics route : metrics) {
+            if (route.getRequests() > 0) {
+                target.add(route);
+            }
+        }
+    }
+
+    private static void write(Writer writer, String prefix, String description, List<RouteMetrics> routes)
+            throws IOException {
+        writeCounter(writer, prefix + "_requests_total", description + "请求数", routes, RouteMetrics::getRequests);
+        writeCounter(writer, prefix + "_errors_total", description + "出错（异常或 5xx）的请求数", routes, RouteMetrics::getErrors);
+        writeCounter(writer, prefix + "_received_bytes_total", description + "收到的字节数（已知长度的部分）", routes,
+                RouteMetrics::getBytesIn);
+        writeCounter(writer, prefix + "_sent_bytes_total", description + "发出的字节数（已知长度的部分）", routes,
+                RouteMetrics::getBytesOut);
+        String name = prefix + "_request_duration_seconds";
+        writer.write("# HELP " + name + " " + description + "耗时\n");
+        writer.write("# TYPE " + name + " summary\n");
+        for (RouteMetrics route : routes) {
+            LatencyHistogram latency = route.getLatency();
+            for (double quantile : QUANTILES) {
+                writer.write(name + labels(route, ",quantile=\"" + quantile + "\"") + " "
+                        + seconds(latency.quantile(quantile)) + "\n");
+            }
+            writer.write(name + "_sum" + labels(route, "") + " " + seconds(latency.getSum()) + "\n");
+            writer.write(name + "_count" + labels(route, "") + " " + latency.getCount() + "\n");
+        }
+    }
+
+    private static void writeCounter(Writer writer, String name, String help, List<RouteMetrics> routes,
+                                     ToLongFunction<RouteMetrics> value) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " counter\n");
+        for (RouteMetrics route : routes) {
+            writer.write(name + labels(route, "") + " " + value.applyAsLong(route) + "\n");
+        }
+    }
+
+    private static String labels(RouteMetrics route, String extra) {
+        return "{method=\"" + escape(route.getMethod()) + "\",route=\"" + escape(route.getRoute()) + "\"" + extra + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * reactive 模式下记录服务端接口指标，与 {@link MetricsHandlerInterceptor} 记录的内容相同
+ * <p>
+ * 耗时从进入过滤器算起，到响应写完、出错或客户端断开为止；收发字节数都取自 Content-Length
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class MetricsWebFilter implements WebFilter {
+
+    private final MetricsRegistry registry;
+
+    public MetricsWebFilter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> record(exchange, System.nanoTime() - start, signal));
+    }
+
+    private void record(ServerWebExchange exchange, long nanos, SignalType signal) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : request.getPath().value();
+        Object handler = exchange.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        Object key = handler instanceof HandlerMethod ? ((HandlerMethod) handler).getMethod() : route;
+        HttpStatus status = response.getStatusCode();
+        registry.server(key, request.getMethodValue(), route)
+                .record(nanos, request.getHeaders().getContentLength(), response.getHeaders().getContentLength(),
+                        signal == SignalType.ON_ERROR || status != null && status.is5xxServerError());
+    }
+
+}
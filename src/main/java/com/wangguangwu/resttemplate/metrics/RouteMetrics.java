@@ -0,0 +1,79 @@
+package com.wangguangwu.resttemplate.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的请求数、错误数、收发字节数和延迟分布
+ *
+ * @author wangguangwu
+ */
+public class RouteMetrics {
+
+    private final String method;
+
+    private final String route;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    /**
+     * @param nanos    耗时
+     * @param bytesIn  收到的字节数，未知时传 -1
+     * @param bytesOut 发出的字节数，未知时传 -1
+     * @param error    是否出错
+     */
+    public void record(long nanos, long bytesIn, long bytesOut, boolean error) {
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+        if (bytesIn > 0) {
+            this.bytesIn.add(bytesIn);
+        }
+        if (bytesOut > 0) {
+            this.bytesOut.add(bytesOut);
+        }
+        latency.record(nanos);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+}
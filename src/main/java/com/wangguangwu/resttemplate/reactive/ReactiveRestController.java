@@ -0,0 +1,474 @@
+package com.wangguangwu.resttemplate.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.dto.BlobInfo;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import com.wangguangwu.resttemplate.file.BlobStore;
+import com.wangguangwu.resttemplate.file.DigestingChannel;
+import com.wangguangwu.resttemplate.file.FileCache;
+import com.wangguangwu.resttemplate.file.ZipWriter;
+import com.wangguangwu.resttemplate.header.CapturedHeaders;
+import com.wangguangwu.resttemplate.header.HeaderCapture;
+import com.wangguangwu.resttemplate.json.JsonSpool;
+import com.wangguangwu.resttemplate.json.JsonStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.multipart.FormFieldPart;
+import org.springframework.http.codec.multipart.Part;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.Assert;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * reactive 模式下的 /rest 接口，请求和响应格式与 servlet 模式的 RestTemplateController 一致
+ * <p>
+ * 请求体和响应体都以 DataBuffer 流的形式按需读写，慢客户端只占用连接而不占用线程；
+ * 文件查找、zip 打包等阻塞操作放到 boundedElastic 线程池中执行，不阻塞事件循环
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("rest")
+public class ReactiveRestController {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${file.Path}")
+    String filePath;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    FileCache fileCache;
+
+    @Autowired
+    HeaderCapture headerCapture;
+
+    @Autowired
+    BlobStore blobStore;
+
+    /**
+     * 流式解析 multipart：part 按顺序边读边交给调用方，不在内存或临时文件中攒齐
+     */
+    private final DefaultPartHttpMessageReader streamingPartReader = new DefaultPartHttpMessageReader();
+
+    public ReactiveRestController() {
+        streamingPartReader.setStreaming(true);
+    }
+
+    @GetMapping("/get")
+    public RestDto get() {
+        return new RestDto(1, "Hello World");
+    }
+
+    @GetMapping("/get/{id}/{name}")
+    public RestDto get(@PathVariable("id") Integer id, @PathVariable("name") String name) {
+        return new RestDto(id, name);
+    }
+
+    /**
+     * 返回 count 个元素，默认 2 个
+     */
+    @GetMapping("/getList")
+    public List<RestDto> getList(@RequestParam(value = "count", defaultValue = "2") int count) {
+        Assert.isTrue(count >= 0 && count <= 1000, "count 必须在 0 到 1000 之间");
+        List<RestDto> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            list.add(new RestDto(i, i % 2 == 1 ? "Hello World" : "Hello China"));
+        }
+        return list;
+    }
+
+    /**
+     * 下载绝对路径下的文件，或传入 sha256 下载内容寻址存储中的文件
+     * <p>
+     * 返回 FileSystemResource 时由 Reactor Netty 以 FileRegion 零拷贝写出，并由 WebFlux 处理 Range 和条件请求
+     */
+    @GetMapping("/download")
+    public Mono<ResponseEntity<Resource>> download(@RequestParam(value = "filename", required = false) String filename,
+                                                   @RequestParam(value = "sha256", required = false) String sha256) {
+        if (sha256 != null) {
+            return downloadBlob(sha256, filename);
+        }
+        Assert.notNull(filename, "filename 和 sha256 不能都为空");
+        return resolve(filename).map(file -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + filename);
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            Resource resource;
+            if (file.getPath() != null) {
+                headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+                headers.setETag(file.getEtag());
+                headers.setLastModified(file.getLastModified());
+                resource = new FileSystemResource(file.getPath());
+            } else if (file.getContent() != null) {
+                resource = new ByteArrayResource(file.getContent());
+            } else {
+                resource = new InputStreamResource(openStream(file));
+            }
+            return ResponseEntity.ok().headers(headers).body(resource);
+        });
+    }
+
+    /**
+     * 零拷贝下载，reactive 模式下与 {@link #download} 相同
+     */
+    @GetMapping("/download/zeroCopy")
+    public Mono<ResponseEntity<Resource>> zeroCopyDownload(@RequestParam("filename") String filename) {
+        return download(filename, null);
+    }
+
+    /**
+     * 打包下载多个文件
+     * <p>
+     * zip 在 boundedElastic 线程中写入管道，响应按客户端的读取速度从管道中取数据；客户端断开时管道关闭，写线程随之退出
+     */
+    @GetMapping("/download/zip")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> zipDownload(@RequestParam("filename") List<String> filenames,
+                                                              @RequestParam(value = "stored", defaultValue = "false") boolean stored) {
+        // 先确认所有文件都存在，响应开始写出后就无法再返回错误状态码
+        return Flux.fromIterable(filenames)
+                .concatMap(filename -> resolve(filename).map(file -> new AbstractMap.SimpleEntry<>(ZipWriter.entryName(filename), file)))
+                .collect(LinkedHashMap<String, FileCache.CachedFile>::new, (files, entry) -> files.putIfAbsent(entry.getKey(), entry.getValue()))
+                .map(files -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("application/zip"))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=files.zip")
+                        .body(zip(files, stored)));
+    }
+
+    /**
+     * 解析请求头
+     */
+    @GetMapping("/header")
+    public CapturedHeaders header(@RequestHeader HttpHeaders headers) {
+        return headerCapture.capture(headers);
+    }
+
+    @GetMapping("/getAll/{path1}/{path2}")
+    public Map<String, Object> getAll(@PathVariable("path1") String path1,
+                                      @PathVariable("path2") String path2,
+                                      @RequestHeader HttpHeaders headers) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path1", path1);
+        result.put("path2", path2);
+        result.put("header", headerCapture.capture(headers));
+        return result;
+    }
+
+    @PostMapping("/post1")
+    public RestDto post1(RestDto restDto) {
+        return restDto;
+    }
+
+    /**
+     * 上传文件，内容保存到内容寻址存储中，相同内容只保存一份
+     */
+    @PostMapping("/upload")
+    public Mono<Map<String, String>> upload(@RequestPart("file") FilePart file) {
+        return storeBlob(file).map(blob -> {
+            Map<String, String> fileMetaData = new LinkedHashMap<>();
+            fileMetaData.put("文件名", file.filename());
+            fileMetaData.put("文件类型", String.valueOf(file.headers().getContentType()));
+            fileMetaData.put("文件大小(byte)", String.valueOf(blob.getSize()));
+            fileMetaData.put("sha256", blob.getSha256());
+            fileMetaData.put("引用次数", String.valueOf(blob.getReferences()));
+            return fileMetaData;
+        });
+    }
+
+    /**
+     * 流式上传：边解析请求体边把文件写入 file.Path 下，同时计算大小和 SHA-256
+     * <p>
+     * 写文件使用 AsynchronousFileChannel，磁盘写完一块才向客户端请求下一块数据
+     */
+    @PostMapping("/upload/stream")
+    public Flux<Map<String, String>> streamUpload(ServerHttpRequest request) {
+        return streamingPartReader.read(ResolvableType.forClass(Part.class), request, Collections.emptyMap())
+                .concatMap(part -> {
+                    // 普通表单字段直接跳过
+                    if (part instanceof FilePart && StringUtils.hasText(((FilePart) part).filename())) {
+                        return storePart((FilePart) part);
+                    }
+                    return part.content().doOnNext(DataBufferUtils::release).then(Mono.empty());
+                });
+    }
+
+    /**
+     * 复杂的表单：包含了普通元素、多文件，文件内容保存到内容寻址存储中
+     * <p>
+     * 各文件并行保存，任意一个文件失败时整个请求失败
+     */
+    @PostMapping("/complexForm")
+    public Mono<Map<String, String>> complexForm(@RequestBody Mono<MultiValueMap<String, Part>> form) {
+        return form.flatMap(parts -> {
+            Map<String, String> result = new LinkedHashMap<>();
+            Part name = parts.getFirst("name");
+            result.put("name", name instanceof FormFieldPart ? ((FormFieldPart) name).value() : null);
+            Part headImage = parts.getFirst("headImage");
+            result.put("headImage", headImage instanceof FilePart ? ((FilePart) headImage).filename() : null);
+            List<FilePart> idImageList = parts.getOrDefault("idImageList", Collections.emptyList()).stream()
+                    .filter(FilePart.class::isInstance)
+                    .map(FilePart.class::cast)
+                    .collect(Collectors.toList());
+            result.put("idImageList", Arrays.toString(idImageList.stream().map(FilePart::filename).toArray()));
+            List<FilePart> files = new ArrayList<>(idImageList.size() + 1);
+            if (headImage instanceof FilePart) {
+                files.add((FilePart) headImage);
+            }
+            files.addAll(idImageList);
+            return Flux.fromIterable(files)
+                    .flatMapSequential(this::storeBlob)
+                    .map(BlobInfo::getSha256)
+                    .collectList()
+                    .map(sha256List -> {
+                        int offset = headImage instanceof FilePart ? 1 : 0;
+                        result.put("headImageSha256", offset == 1 ? sha256List.get(0) : null);
+                        result.put("idImageSha256List", sha256List.subList(offset, sha256List.size()).toString());
+                        return result;
+                    });
+        });
+    }
+
+    @PostMapping("/postRequestBody")
+    public Mono<RestDto> postRequestBody(@RequestBody Mono<RestDto> restDto) {
+        return restDto;
+    }
+
+    /**
+     * 逐个解析 json 数组中的 RestDto，读完请求体后写回，见 {@link JsonSpool}
+     */
+    @PostMapping("/postForList")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> postForList(@RequestBody Flux<RestDto> list) {
+        return spool(list, false);
+    }
+
+    /**
+     * 流式处理 NDJSON 请求体：逐个解析 RestDto，读完请求体后按 Accept 写回 NDJSON 或 json 数组
+     */
+    @PostMapping(value = "/postForList", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> postForListNdjson(@RequestBody Flux<RestDto> list,
+                                                                    ServerHttpRequest request) {
+        return spool(list, JsonStreamWriter.prefersNdjson(request.getHeaders().getFirst(HttpHeaders.ACCEPT)));
+    }
+
+
+    //===================================私有方法========================================
+
+    /**
+     * 内容寻址存储中的文件不会变化，ETag 即 sha256
+     */
+    private Mono<ResponseEntity<Resource>> downloadBlob(String sha256, String filename) {
+        return Mono.fromCallable(() -> blobStore.getPath(sha256))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("文件不存在: " + sha256)))
+                .map(path -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + (filename != null ? filename : sha256))
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .header(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .eTag(sha256)
+                        .body(new FileSystemResource(path)));
+    }
+
+    /**
+     * 在 boundedElastic 线程中把元素写入临时文件，请求体读完后再读取文件写回，响应写完或失败时删除文件
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> spool(Flux<RestDto> list, boolean ndjson) {
+        return Mono.fromCallable(() -> new JsonSpool<RestDto>(objectMapper, ndjson))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(spool -> list.publishOn(Schedulers.boundedElastic())
+                        .<RestDto>handle((restDto, sink) -> {
+                            try {
+                                spool.write(restDto);
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                        })
+                        .then(Mono.fromCallable(spool::finish))
+                        .map(size -> ResponseEntity.ok()
+                                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                                .contentLength(size)
+                                .body(DataBufferUtils.read(spool.getFile(), DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE)
+                                        .doFinally(signal -> spool.delete())))
+                        .doOnError(e -> spool.delete())
+                        .doOnCancel(spool::delete));
+    }
+
+    /**
+     * 先把 part 写入临时文件，再在 boundedElastic 线程中计算 sha256 并保存到内容寻址存储中，完成或失败时删除临时文件
+     */
+    private Mono<BlobInfo> storeBlob(FilePart part) {
+        return Mono.fromCallable(() -> Files.createTempFile("upload-", ".tmp"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(temp -> part.transferTo(temp)
+                        .then(Mono.fromCallable(() -> {
+                            try (InputStream inputStream = Files.newInputStream(temp)) {
+                                return blobStore.store(inputStream);
+                            }
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .doFinally(signal -> deleteQuietly(temp)));
+    }
+
+    /**
+     * 在 boundedElastic 线程中查找文件，首次查找可能需要读磁盘
+     */
+    private Mono<FileCache.CachedFile> resolve(String filename) {
+        return Mono.fromCallable(() -> fileCache.get(filename))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("文件不存在: " + filename)));
+    }
+
+    /**
+     * 将 part 写入 file.Path 下的同名文件，写入失败时删除不完整的文件
+     */
+    private Mono<Map<String, String>> storePart(FilePart part) {
+        // 只保留文件名，防止路径穿越
+        String name = StringUtils.getFilename(StringUtils.cleanPath(part.filename()));
+        Assert.isTrue(StringUtils.hasText(name) && !"..".equals(name), "文件名不合法");
+        Path target = Paths.get(filePath).resolve(name);
+        MessageDigest digest = DigestingChannel.sha256();
+        AtomicLong size = new AtomicLong();
+        Flux<DataBuffer> content = part.content().doOnNext(buffer -> {
+            size.addAndGet(buffer.readableByteCount());
+            digest.update(buffer.asByteBuffer());
+        });
+        return Mono.using(
+                        () -> AsynchronousFileChannel.open(target, StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                        channel -> DataBufferUtils.write(content, channel).map(DataBufferUtils::release).then(),
+                        this::closeQuietly)
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(target))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.error(e)))
+                .then(Mono.fromSupplier(() -> {
+                    fileCache.invalidate(name);
+                    Map<String, String> fileMetaData = new LinkedHashMap<>();
+                    fileMetaData.put("文件名", name);
+                    fileMetaData.put("文件类型", String.valueOf(part.headers().getContentType()));
+                    fileMetaData.put("文件大小(byte)", String.valueOf(size.get()));
+                    fileMetaData.put("sha256", DigestingChannel.toHex(digest.digest()));
+                    return fileMetaData;
+                }));
+    }
+
+    /**
+     * 在 boundedElastic 线程中把 zip 写入管道，事件循环线程只读取管道；
+     * 写入出错时读取端读完已写出的部分后收到该异常，响应以错误结束，客户端不会把截断的压缩包当成完整的
+     */
+    private Flux<DataBuffer> zip(Map<String, FileCache.CachedFile> files, boolean stored) {
+        return DataBufferUtils.readInputStream(() -> {
+            FailablePipedInputStream inputStream = new FailablePipedInputStream(BUFFER_SIZE);
+            PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+            Schedulers.boundedElastic().schedule(() -> {
+                try {
+                    ZipWriter.write(outputStream, files, stored);
+                } catch (IOException | RuntimeException e) {
+                    // 客户端断开时管道的读取端已关闭，不会再读到该异常
+                    inputStream.fail(e);
+                } finally {
+                    try {
+                        outputStream.close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            });
+            return inputStream;
+        }, DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private InputStream openStream(FileCache.CachedFile file) {
+        try {
+            return file.openStream();
+        } catch (IOException e) {
+            throw new IllegalStateException("读取文件失败", e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    /**
+     * 写入端出错时，读完已写出的内容后抛出写入端的异常，而不是正常结束
+     */
+    private static class FailablePipedInputStream extends PipedInputStream {
+
+        private volatile Exception failure;
+
+        FailablePipedInputStream(int pipeSize) {
+            super(pipeSize);
+        }
+
+        void fail(Exception e) {
+            this.failure = e;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            return checkFailure(super.read());
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            return checkFailure(super.read(b, off, len));
+        }
+
+        private int checkFailure(int read) throws IOException {
+            if (read == -1 && failure != null) {
+                throw new IOException("写入 zip 失败", failure);
+            }
+            return read;
+        }
+
+    }
+
+}
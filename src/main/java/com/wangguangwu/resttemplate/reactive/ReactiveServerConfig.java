@@ -0,0 +1,25 @@
+package com.wangguangwu.resttemplate.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * reactive 模式下的服务器配置
+ * <p>
+ * classpath 上同时存在 Tomcat 和 Reactor Netty 时 Spring Boot 优先使用 Tomcat，这里显式指定 Netty，
+ * 由少量事件循环线程处理所有连接，慢客户端不再占用工作线程
+ *
+ * @author wangguangwu
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁熔断器
+ * <p>
+ * 状态和进入该状态的时间打包在一个 AtomicLong 中，调用计数和失败计数打包在另一个 AtomicLong 中，都只用 CAS 更新：
+ * <ul>
+ *     <li>CLOSED：每满 minimumCalls 次调用统计一次失败率，达到 failureRateThreshold 时打开</li>
+ *     <li>OPEN：拒绝所有调用，openDuration 之后第一个调用者切换到 HALF_OPEN 作为探测</li>
+ *     <li>HALF_OPEN：只放行探测请求，成功则关闭，失败则重新打开；探测超过 openDuration 仍未结束时再放行一个</li>
+ * </ul>
+ *
+ * @author wangguangwu
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final State[] STATES = State.values();
+
+    private static final int STATE_BITS = 2;
+
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+
+    /**
+     * window 的高 32 位是调用数，低 32 位是失败数
+     */
+    private static final long ONE_CALL = 1L << 32;
+
+    private static final long FAILURE_MASK = ONE_CALL - 1;
+
+    private final long epoch = System.nanoTime();
+
+    private final AtomicLong state = new AtomicLong(pack(State.CLOSED, 0));
+
+    private final AtomicLong window = new AtomicLong();
+
+    private final double failureRateThreshold;
+
+    private final int minimumCalls;
+
+    private final long openNanos;
+
+    /**
+     * @param failureRateThreshold 打开熔断器的失败率，0 到 1
+     * @param minimumCalls         统计失败率的窗口大小（调用次数）
+     * @param openDuration         打开后经过多久开始探测
+     */
+    public CircuitBreaker(double failureRateThreshold, int minimumCalls, Duration openDuration) {
+        if (minimumCalls < 1) {
+            throw new IllegalArgumentException("minimumCalls 必须大于 0");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * 是否放行本次调用；放行后必须调用 {@link #onSuccess()} 或 {@link #onFailure()}
+     */
+    public boolean tryAcquire() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.CLOSED) {
+            return true;
+        }
+        long now = now();
+        if (now - timeOf(current) < openNanos) {
+            return false;
+        }
+        // OPEN 到期或 HALF_OPEN 的探测迟迟没有结果：只有 CAS 成功的调用者成为探测请求
+        return state.compareAndSet(current, pack(State.HALF_OPEN, now));
+    }
+
+    public void onSuccess() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.HALF_OPEN) {
+            if (state.compareAndSet(current, pack(State.CLOSED, now()))) {
+                window.set(0);
+            }
+        } else if (currentState == State.CLOSED) {
+            record(ONE_CALL);
+        }
+    }
+
+    public void onFailure() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.HALF_OPEN) {
+            state.compareAndSet(current, pack(State.OPEN, now()));
+        } else if (currentState == State.CLOSED) {
+            record(ONE_CALL + 1);
+        }
+    }
+
+    public State getState() {
+        return stateOf(state.get());
+    }
+
+    /**
+     * 窗口满时由 CAS 重置窗口成功的线程判断是否打开，其他线程的计数记入下一个窗口
+     */
+    private void record(long delta) {
+        long value = window.addAndGet(delta);
+        long calls = value >>> 32;
+        if (calls < minimumCalls || !window.compareAndSet(value, 0)) {
+            return;
+        }
+        long failures = value & FAILURE_MASK;
+        if (failures >= failureRateThreshold * calls) {
+            long current = state.get();
+            if (stateOf(current) == State.CLOSED) {
+                state.compareAndSet(current, pack(State.OPEN, now()));
+            }
+        }
+    }
+
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+
+    private static long pack(State state, long time) {
+        return time << STATE_BITS | state.ordinal();
+    }
+
+    private static State stateOf(long value) {
+        return STATES[(int) (value & STATE_MASK)];
+    }
+
+    private static long timeOf(long value) {
+        return value >>> STATE_BITS;
+    }
+
+}
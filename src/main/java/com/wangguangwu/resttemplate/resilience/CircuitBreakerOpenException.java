@@ -0,0 +1,16 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * 目标主机的熔断器已打开，请求未发出
+ *
+ * @author wangguangwu
+ */
+public class CircuitBreakerOpenException extends ResourceAccessException {
+
+    public CircuitBreakerOpenException(String host) {
+        super("熔断器已打开: " + host);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * 请求的截止时间
+ * <p>
+ * 当前线程的截止时间保存在线程变量中：{@link ResilientRestTemplate} 据此限制整次调用（含重试、对冲请求）的耗时，
+ * 连接池按剩余时间缩短连接、读取超时，并通过 {@link #HEADER} 把剩余毫秒数传给下游；
+ * 服务端由 {@link DeadlineFilter} 从请求头恢复截止时间，处理请求时发出的调用自动继承。
+ * 传递剩余时长而不是绝对时间，不受两端时钟偏差影响
+ *
+ * @author wangguangwu
+ */
+public final class Deadline {
+
+    /**
+     * 剩余时间（毫秒）
+     */
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * 当前线程的截止时间，没有时返回 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 解析 {@link #HEADER}，没有或格式不对时返回 null
+     */
+    public static Deadline fromHeader(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        try {
+            return after(Duration.ofMillis(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, remainingNanos()));
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * 两个截止时间中较早的一个
+     */
+    public Deadline min(Deadline other) {
+        return other == null || deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /**
+     * {@link #HEADER} 的值
+     */
+    public String toHeaderValue() {
+        return String.valueOf(remaining().toMillis());
+    }
+
+    /**
+     * 在截止时间内执行 callable，期间 {@link #current()} 返回本截止时间与外层截止时间中较早的一个
+     */
+    public <T> T call(Callable<T> callable) throws Exception {
+        Deadline previous = attach(this);
+        try {
+            return callable.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + remaining().toMillis() + "ms]";
+    }
+
+    /**
+     * 设为当前线程的截止时间
+     *
+     * @return 之前的截止时间，用于 {@link #restore}
+     */
+    static Deadline attach(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline.min(previous));
+        return previous;
+    }
+
+    static void restore(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+
+/**
+ * 调用在截止时间内没有完成
+ *
+ * @author wangguangwu
+ */
+public class DeadlineExceededException extends ResourceAccessException {
+
+    public DeadlineExceededException(URI uri) {
+        super("请求超过截止时间: " + uri, new SocketTimeoutException());
+    }
+
+    public DeadlineExceededException(URI uri, IOException cause) {
+        super("请求超过截止时间: " + uri, cause);
+    }
+
+}
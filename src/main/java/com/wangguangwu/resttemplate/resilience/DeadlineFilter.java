@@ -0,0 +1,46 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 从 {@link Deadline#HEADER} 恢复调用方的截止时间
+ * <p>
+ * 已经超时的请求直接返回 504，不再处理；否则处理请求期间 {@link Deadline#current()} 为调用方剩余的时间，
+ * 接口中通过 {@link ResilientRestTemplate} 或连接池发出的下游调用不会超过该时间。
+ * 异步接口在其他线程中执行的部分不继承截止时间
+ *
+ * @author wangguangwu
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Deadline deadline = Deadline.fromHeader(request.getHeader(Deadline.HEADER));
+        if (deadline == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (deadline.isExpired()) {
+            response.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, "请求已超过截止时间");
+            return;
+        }
+        Deadline previous = Deadline.attach(deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.restore(previous);
+        }
+    }
+
+}
@@ -0,0 +1,344 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.metrics.LatencyHistogram;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriTemplateHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带截止时间、重试、对冲请求和熔断的 RestTemplate 调用
+ * <p>
+ * 每次调用的截止时间取配置的 timeout 与当前线程 {@link Deadline} 中较早的一个，重试和对冲请求都在其中完成；
+ * 截止时间通过 {@link Deadline#HEADER} 传给下游，连接池按剩余时间缩短读取超时。
+ * <ul>
+ *     <li>重试：只重试幂等请求的网络错误和 502/503/504，按 full jitter 指数退避</li>
+ *     <li>对冲：GET 请求超过同一 url 模板耗时的 hedgePercentile 分位数仍未返回时，再发一个相同请求，先返回的结果生效</li>
+ *     <li>熔断：每个 host:port 一个 {@link CircuitBreaker}，网络错误、5xx 和超时计为失败，4xx 不计</li>
+ * </ul>
+ * 对冲时 execute 的 ResponseExtractor 可能被执行两次，只应用于没有副作用的读取
+ *
+ * @author wangguangwu
+ */
+public class ResilientRestTemplate implements AutoCloseable {
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+    private static final int MAX_ROUTES = 1000;
+
+    /**
+     * 耗时样本少于该数量时使用配置的 hedgeDelay
+     */
+    private static final long MIN_HEDGE_SAMPLES = 100;
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService executor;
+
+    private final RestClientProperties.Resilience properties;
+
+    /**
+     * 只用于从 url 模板中取出 host，不经过 restTemplate 的 UriTemplateHandler，避免影响调用指标中的 url 模板
+     */
+    private final UriTemplateHandler uriTemplateHandler = new DefaultUriBuilderFactory();
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram otherLatency = new LatencyHistogram();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param restTemplate restTemplate
+     * @param executor     执行对冲请求的线程池，关闭时一并关闭
+     * @param properties   配置
+     */
+    public ResilientRestTemplate(RestTemplate restTemplate, ExecutorService executor,
+                                 RestClientProperties.Resilience properties) {
+        this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.properties = properties;
+    }
+
+    public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                          Class<T> responseType, Object... uriVariables) {
+        return call(url, method, uriVariables, deadline -> restTemplate.exchange(url, method,
+                withDeadline(requestEntity, deadline), responseType, uriVariables));
+    }
+
+    public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                          ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        return call(url, method, uriVariables, deadline -> restTemplate.exchange(url, method,
+                withDeadline(requestEntity, deadline), responseType, uriVariables));
+    }
+
+    public <T> T execute(String url, HttpMethod method, RequestCallback requestCallback,
+                         ResponseExtractor<T> responseExtractor, Object... uriVariables) {
+        return call(url, method, uriVariables, deadline -> restTemplate.execute(url, method, request -> {
+            if (requestCallback != null) {
+                requestCallback.doWithRequest(request);
+            }
+            request.getHeaders().set(Deadline.HEADER, deadline.toHeaderValue());
+        }, responseExtractor, uriVariables));
+    }
+
+    /**
+     * 目标主机的熔断器状态
+     */
+    public CircuitBreaker.State getCircuitBreakerState(String host) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(host);
+        return circuitBreaker != null ? circuitBreaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * 被熔断器拒绝的调用次数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    //===================================私有方法========================================
+
+    private <T> T call(String url, HttpMethod method, Object[] uriVariables, Attempt<T> attempt) {
+        Deadline deadline = Deadline.after(properties.getTimeout()).min(Deadline.current());
+        URI uri = uriTemplateHandler.expand(url, uriVariables);
+        CircuitBreaker circuitBreaker = circuitBreaker(uri.getAuthority());
+        LatencyHistogram latency = latency(method + " " + url);
+        int maxAttempts = IDEMPOTENT_METHODS.contains(method) ? properties.getMaxRetries() + 1 : 1;
+        boolean hedging = properties.isHedging() && method == HttpMethod.GET;
+        for (int i = 0; ; i++) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(uri);
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                rejected.increment();
+                throw new CircuitBreakerOpenException(uri.getAuthority());
+            }
+            try {
+                T result = hedging ? hedged(attempt, deadline, latency, uri) : timed(attempt, deadline, latency, uri);
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (!isFailure(e)) {
+                    // 4xx 等调用方的错误说明下游是正常的
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                if (i + 1 >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backoff(i, deadline, e);
+                retries.increment();
+            }
+        }
+    }
+
+    /**
+     * 在当前线程执行一次请求，期间 {@link Deadline#current()} 为本次调用的截止时间
+     */
+    private <T> T timed(Attempt<T> attempt, Deadline deadline, LatencyHistogram latency, URI uri) {
+        long start = System.nanoTime();
+        Deadline previous = Deadline.attach(deadline);
+        try {
+            T result = attempt.run(deadline);
+            latency.record(System.nanoTime() - start);
+            return result;
+        } catch (ResourceAccessException e) {
+            if (deadline.isExpired() && !(e instanceof DeadlineExceededException)) {
+                throw e.getCause() instanceof IOException
+                        ? new DeadlineExceededException(uri, (IOException) e.getCause()) : new DeadlineExceededException(uri);
+            }
+            throw e;
+        } finally {
+            Deadline.restore(previous);
+        }
+    }
+
+    /**
+     * 先发一个请求，超过对冲延迟仍未返回时再发一个，取先成功的结果；两个都失败时抛出后失败的异常
+     */
+    private <T> T hedged(Attempt<T> attempt, Deadline deadline, LatencyHistogram latency, URI uri) {
+        long delay = hedgeDelayNanos(latency);
+        if (delay >= deadline.remainingNanos()) {
+            return timed(attempt, deadline, latency, uri);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primary = submit(attempt, deadline, latency, uri, result, pending);
+        Future<?> hedge = null;
+        try {
+            try {
+                return result.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                hedges.increment();
+                pending.incrementAndGet();
+                hedge = submit(attempt, deadline, latency, uri, result, pending);
+            }
+            return result.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(uri);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new ResourceAccessException("请求失败: " + uri, cause instanceof IOException ? (IOException) cause : null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("等待响应时被中断: " + uri);
+        } finally {
+            // 输掉的请求由读取超时兜底结束，连接随后归还连接池
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<?> submit(Attempt<T> attempt, Deadline deadline, LatencyHistogram latency, URI uri,
+                                 CompletableFuture<T> result, AtomicInteger pending) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    result.complete(timed(attempt, deadline, latency, uri));
+                } catch (RuntimeException e) {
+                    if (pending.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 耗时样本足够时取配置的分位数，否则使用配置的对冲延迟
+     */
+    private long hedgeDelayNanos(LatencyHistogram latency) {
+        if (latency.getCount() < MIN_HEDGE_SAMPLES) {
+            return properties.getHedgeDelay().toNanos();
+        }
+        return latency.quantile(properties.getHedgePercentile());
+    }
+
+    /**
+     * full jitter：在 [0, min(maxBackoff, backoff * 2^attempt)] 内随机等待，剩余时间不够时直接放弃重试
+     */
+    private void backoff(int attempt, Deadline deadline, RuntimeException failure) {
+        long cap = Math.min(properties.getMaxBackoff().toNanos(),
+                properties.getBackoff().toNanos() << Math.min(attempt, 30));
+        long sleep = ThreadLocalRandom.current().nextLong(Math.max(1, cap) + 1);
+        if (sleep >= deadline.remainingNanos()) {
+            throw failure;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private CircuitBreaker circuitBreaker(String host) {
+        return circuitBreakers.computeIfAbsent(host, key -> new CircuitBreaker(
+                properties.getFailureRateThreshold(), properties.getMinimumCalls(), properties.getOpenDuration()));
+    }
+
+    private LatencyHistogram latency(String route) {
+        LatencyHistogram latency = latencies.get(route);
+        if (latency != null) {
+            return latency;
+        }
+        if (latencies.size() >= MAX_ROUTES) {
+            return otherLatency;
+        }
+        return latencies.computeIfAbsent(route, key -> new LatencyHistogram());
+    }
+
+    /**
+     * 网络错误、超时和 5xx 计为失败
+     */
+    private static boolean isFailure(RuntimeException e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException
+                || e instanceof RejectedExecutionException;
+    }
+
+    /**
+     * 网络错误和 502/503/504 可以重试；超过截止时间、熔断器打开时不再重试
+     */
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof DeadlineExceededException || e instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        if (e instanceof HttpServerErrorException) {
+            HttpStatus status = ((HttpServerErrorException) e).getStatusCode();
+            return status == HttpStatus.BAD_GATEWAY || status == HttpStatus.SERVICE_UNAVAILABLE
+                    || status == HttpStatus.GATEWAY_TIMEOUT;
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    private static HttpEntity<?> withDeadline(HttpEntity<?> requestEntity, Deadline deadline) {
+        HttpHeaders headers = new HttpHeaders();
+        Object body = null;
+        if (requestEntity != null) {
+            headers.putAll(requestEntity.getHeaders());
+            body = requestEntity.getBody();
+        }
+        headers.set(Deadline.HEADER, deadline.toHeaderValue());
+        return new HttpEntity<>(body, headers);
+    }
+
+    /**
+     * 一次请求
+     */
+    @FunctionalInterface
+    private interface Attempt<T> {
+
+        T run(Deadline deadline);
+
+    }
+
+}
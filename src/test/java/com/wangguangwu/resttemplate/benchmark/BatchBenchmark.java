@@ -0,0 +1,90 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.dto.BatchRequest;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * N 次单独调用 /rest/get/{id}/{name} 与一次包含 N 个子请求的 /rest/batch 对比（本机回环）
+ * <p>
+ * 两种方式都使用连接池，单独调用的耗时主要来自 N 次往返，批量调用只有一次往返
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"1", "10", "100"})
+    int n;
+
+    BenchmarkServer server;
+
+    PooledClientHttpRequestFactory requestFactory;
+
+    RestTemplate restTemplate;
+
+    List<BatchRequest> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkServer.start();
+        requestFactory = new PooledClientHttpRequestFactory(new RestClientProperties());
+        restTemplate = new RestTemplate(requestFactory);
+        batch = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            batch.add(new BatchRequest("GET", "/rest/get/" + i + "/HelloWorld", null, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public int singleCalls() {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            RestDto response = restTemplate.getForObject(server.url("/rest/get/{id}/{name}"), RestDto.class, i, "HelloWorld");
+            sum += response.getId();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int batch() {
+        JsonNode response = restTemplate.postForObject(server.url("/rest/batch"), batch, JsonNode.class);
+        int sum = 0;
+        for (JsonNode node : response) {
+            sum += node.get("body").get("id").asInt();
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
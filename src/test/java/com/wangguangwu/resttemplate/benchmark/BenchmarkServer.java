@@ -0,0 +1,91 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.wangguangwu.resttemplate.RestTemplateApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试用的内嵌服务：随机端口启动应用，file.Path 指向临时目录
+ *
+ * @author wangguangwu
+ */
+public class BenchmarkServer implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path fileDir;
+
+    private final int port;
+
+    private BenchmarkServer(ConfigurableApplicationContext context, Path fileDir) {
+        this.context = context;
+        this.fileDir = fileDir;
+        this.port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    /**
+     * 启动服务
+     *
+     * @param args 额外的启动参数，如 --server.compression.enabled=true
+     */
+    public static BenchmarkServer start(String... args) throws IOException {
+        Path fileDir = Files.createTempDirectory("rest-benchmark");
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--server.port=0");
+        arguments.add("--file.Path=" + fileDir.toAbsolutePath());
+        arguments.add("--logging.level.root=WARN");
+        arguments.addAll(Arrays.asList(args));
+        ConfigurableApplicationContext context =
+                SpringApplication.run(RestTemplateApplication.class, arguments.toArray(new String[0]));
+        return new BenchmarkServer(context, fileDir);
+    }
+
+    /**
+     * 在 file.Path 下生成指定大小的随机内容文件
+     */
+    public Path createFile(String filename, long size) throws IOException {
+        Path file = fileDir.resolve(filename);
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            long remaining = size;
+            while (remaining > 0) {
+                ThreadLocalRandom.current().nextBytes(buffer);
+                int length = (int) Math.min(buffer.length, remaining);
+                outputStream.write(buffer, 0, length);
+                remaining -= length;
+            }
+        }
+        return file;
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Path getFileDir() {
+        return fileDir;
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+}
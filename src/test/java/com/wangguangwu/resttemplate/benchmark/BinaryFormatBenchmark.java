@@ -0,0 +1,132 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * json 与 CBOR、Smile 二进制编码的体积和编解码吞吐量对比
+ * <p>
+ * 负载：单个 RestDto 和 List&lt;RestDto&gt;，size 控制列表长度；三种编码都由 Jackson 完成，
+ * 与服务端、RestTemplate 中的 MappingJackson2*HttpMessageConverter 一致。main 方法先打印各编码的字节数再运行基准
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"10", "10000"})
+    int size;
+
+    ObjectMapper objectMapper;
+
+    JavaType listType;
+
+    RestDto restDto;
+
+    List<RestDto> list;
+
+    byte[] restDtoBytes;
+
+    byte[] listBytes;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = objectMapper(format);
+        listType = objectMapper.getTypeFactory().constructCollectionType(List.class, RestDto.class);
+        restDto = new RestDto(1, "Hello World");
+        list = list(size);
+        restDtoBytes = objectMapper.writeValueAsBytes(restDto);
+        listBytes = objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] writeRestDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(restDto);
+    }
+
+    @Benchmark
+    public RestDto readRestDto() throws IOException {
+        return objectMapper.readValue(restDtoBytes, RestDto.class);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<RestDto> readList() throws IOException {
+        return objectMapper.readValue(listBytes, listType);
+    }
+
+    static ObjectMapper objectMapper(String format) {
+        JsonFactory factory;
+        switch (format) {
+            case "cbor":
+                factory = new CBORFactory();
+                break;
+            case "smile":
+                factory = new SmileFactory();
+                break;
+            default:
+                factory = new JsonFactory();
+        }
+        return new ObjectMapper(factory);
+    }
+
+    static List<RestDto> list(int size) {
+        List<RestDto> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new RestDto(i, "Hello World " + i));
+        }
+        return list;
+    }
+
+    /**
+     * 打印各编码下 RestDto 和列表的字节数
+     */
+    static void printSizes() throws JsonProcessingException {
+        System.out.printf("%-8s %10s %14s %14s%n", "format", "RestDto", "List(10)", "List(10000)");
+        for (String format : new String[]{"json", "cbor", "smile"}) {
+            ObjectMapper objectMapper = objectMapper(format);
+            System.out.printf("%-8s %10d %14d %14d%n", format,
+                    objectMapper.writeValueAsBytes(new RestDto(1, "Hello World")).length,
+                    objectMapper.writeValueAsBytes(list(10)).length,
+                    objectMapper.writeValueAsBytes(list(10000)).length);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, JsonProcessingException {
+        printSizes();
+        Options options = new OptionsBuilder()
+                .include(BinaryFormatBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
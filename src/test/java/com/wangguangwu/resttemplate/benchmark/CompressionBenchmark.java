@@ -0,0 +1,77 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.compression.ContentCodings;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gzip、deflate 压缩和解压 List&lt;RestDto&gt; json 的耗时，以及压缩后的字节数
+ * <p>
+ * 每组参数开始时打印原始大小和压缩后大小；压缩节省的传输时间大于压缩 + 解压耗时才值得开启，
+ * 1KB 以下的响应压缩率低且耗时占比高，这也是 server.compression.min-response-size 的依据
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    /**
+     * 列表长度，对应 json 约 0.3KB、30KB、3MB
+     */
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    @Param({ContentCodings.GZIP, ContentCodings.DEFLATE})
+    String coding;
+
+    byte[] json;
+
+    byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException {
+        List<RestDto> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new RestDto(i, "Hello World " + i));
+        }
+        json = new ObjectMapper().writeValueAsBytes(list);
+        compressed = ContentCodings.encode(json, coding);
+        System.out.printf("%n%s size=%d: %d bytes -> %d bytes (%.1f%%)%n", coding, size, json.length,
+                compressed.length, compressed.length * 100.0 / json.length);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return ContentCodings.encode(json, coding);
+    }
+
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        return StreamUtils.copyToByteArray(ContentCodings.decode(new ByteArrayInputStream(compressed), coding));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompressionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载吞吐量对比：/rest/download（InputStreamResource 堆内拷贝）与 /rest/download/zeroCopy（sendfile/transferTo）
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.wangguangwu.resttemplate.benchmark.DownloadBenchmark
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DownloadBenchmark {
+
+    @Param({"1048576", "67108864", "536870912"})
+    long fileSize;
+
+    BenchmarkServer server;
+
+    RestTemplate restTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkServer.start();
+        server.createFile("bench.bin", fileSize);
+        restTemplate = new RestTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public long streamCopy() {
+        return download("/rest/download?filename={filename}");
+    }
+
+    @Benchmark
+    public long zeroCopy() {
+        return download("/rest/download/zeroCopy?filename={filename}");
+    }
+
+    private long download(String path) {
+        Long size = restTemplate.execute(server.url(path), HttpMethod.GET, null, response -> {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            InputStream body = response.getBody();
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+            }
+            return total;
+        }, "bench.bin");
+        if (size == null || size != fileSize) {
+            throw new IllegalStateException("下载长度不一致: " + size);
+        }
+        return size;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DownloadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.header.HeaderCapture;
+import org.apache.catalina.connector.Request;
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /rest/header 原来先构建 Map&lt;String, List&lt;String&gt;&gt; 再序列化，与 {@link HeaderCapture} 直接写 json 的对比
+ * <p>
+ * 请求头保存在 Tomcat 的 MimeHeaders 中，通过 Tomcat 的 Request 读取，与服务端相同；size 为请求头个数，其中一个请求头有两个值；
+ * 序列化结果写入丢弃数据的输出流，main 方法启用了 GC profiler，gc.alloc.rate.norm 即每次操作分配的字节数
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderCaptureBenchmark {
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"10", "50"})
+    int size;
+
+    ObjectMapper objectMapper;
+
+    HttpServletRequest request;
+
+    HeaderCapture headerCapture;
+
+    HeaderCapture filteredHeaderCapture;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        org.apache.coyote.Request coyoteRequest = new org.apache.coyote.Request();
+        MimeHeaders headers = coyoteRequest.getMimeHeaders();
+        headers.addValue("accept").setString("application/json");
+        headers.addValue("accept").setString("application/x-ndjson");
+        headers.addValue("cookie").setString(repeat('c', 4096));
+        headers.addValue("authorization").setString("Bearer " + repeat('t', 512));
+        for (int i = 3; i < size; i++) {
+            headers.addValue("x-header-" + i).setString("value-" + i);
+        }
+        Request tomcatRequest = new Request(null);
+        tomcatRequest.setCoyoteRequest(coyoteRequest);
+        request = tomcatRequest;
+        headerCapture = new HeaderCapture(new String[0], new String[0]);
+        filteredHeaderCapture = new HeaderCapture(new String[0], new String[]{"cookie", "authorization"});
+    }
+
+    @Benchmark
+    public void map() throws IOException {
+        Map<String, List<String>> header = new LinkedHashMap<>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String name = headerNames.nextElement();
+            Enumeration<String> values = request.getHeaders(name);
+            List<String> list = new ArrayList<>();
+            while (values.hasMoreElements()) {
+                list.add(values.nextElement());
+            }
+            header.put(name, list);
+        }
+        objectMapper.writeValue(DISCARD, header);
+    }
+
+    @Benchmark
+    public void capture() throws IOException {
+        objectMapper.writeValue(DISCARD, headerCapture.capture(request));
+    }
+
+    @Benchmark
+    public void captureFiltered() throws IOException {
+        objectMapper.writeValue(DISCARD, filteredHeaderCapture.capture(request));
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HeaderCaptureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
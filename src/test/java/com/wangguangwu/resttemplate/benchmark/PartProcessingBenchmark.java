@@ -0,0 +1,96 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /rest/complexForm 逐个处理文件（rest.parts.max-concurrency=1）与并行处理的耗时对比（本机回环）
+ * <p>
+ * 每次请求包含 headImage 和 parts 个 idImageList 文件，每个文件 partSize 字节的随机内容；
+ * 服务端对每个文件计算 sha256 并保存到内容寻址存储，第一次请求之后内容都已存在，只计算摘要和增加引用次数。
+ * 并行的收益取决于 CPU 核数和磁盘，单核机器上两组结果应接近
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PartProcessingBenchmark {
+
+    @Param({"1", "5", "10", "50"})
+    int parts;
+
+    @Param({"1", "4"})
+    int maxConcurrency;
+
+    @Param({"262144"})
+    int partSize;
+
+    BenchmarkServer server;
+
+    PooledClientHttpRequestFactory requestFactory;
+
+    RestTemplate restTemplate;
+
+    HttpEntity<MultiValueMap<String, Object>> request;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // 50 个 256KB 的文件超过默认 10MB 的请求大小上限
+        server = BenchmarkServer.start("--rest.parts.max-concurrency=" + maxConcurrency,
+                "--spring.servlet.multipart.max-request-size=100MB");
+        requestFactory = new PooledClientHttpRequestFactory(new RestClientProperties());
+        restTemplate = new RestTemplate(requestFactory);
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("name", "benchmark");
+        form.add("headImage", new FileSystemResource(server.createFile("head.bin", partSize)));
+        for (int i = 0; i < parts; i++) {
+            form.add("idImageList", new FileSystemResource(server.createFile("id" + i + ".bin", partSize)));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        request = new HttpEntity<>(form, headers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public Map<?, ?> complexForm() {
+        Map<?, ?> result = restTemplate.postForObject(server.url("/rest/complexForm"), request, Map.class);
+        if (result == null) {
+            throw new IllegalStateException("响应数据为空");
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PartProcessingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson 与 fastjson2 的序列化、反序列化吞吐量和分配率对比
+ * <p>
+ * 负载：单个 RestDto、List&lt;RestDto&gt;、/rest/header 返回的 Map&lt;String, List&lt;String&gt;&gt;；
+ * size 控制列表长度和请求头个数。main 方法启用了 GC profiler，结果中的 gc.alloc.rate.norm 即每次操作分配的字节数
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final Type LIST_TYPE = new TypeReference<List<RestDto>>() {
+    }.getType();
+
+    private static final Type HEADER_TYPE = new TypeReference<Map<String, List<String>>>() {
+    }.getType();
+
+    @Param({"10", "100000"})
+    int size;
+
+    ObjectMapper objectMapper;
+
+    JavaType listType;
+
+    JavaType headerType;
+
+    RestDto restDto;
+
+    List<RestDto> list;
+
+    Map<String, List<String>> header;
+
+    byte[] restDtoJson;
+
+    byte[] listJson;
+
+    byte[] headerJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        listType = objectMapper.getTypeFactory().constructType(LIST_TYPE);
+        headerType = objectMapper.getTypeFactory().constructType(HEADER_TYPE);
+        restDto = new RestDto(1, "Hello World");
+        list = new ArrayList<>(size);
+        header = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            list.add(new RestDto(i, "Hello World " + i));
+            header.put("header" + i, Arrays.asList("value" + i, "Hello World"));
+        }
+        restDtoJson = objectMapper.writeValueAsBytes(restDto);
+        listJson = objectMapper.writeValueAsBytes(list);
+        headerJson = objectMapper.writeValueAsBytes(header);
+    }
+
+    //===================================RestDto========================================
+
+    @Benchmark
+    public byte[] jacksonWriteRestDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(restDto);
+    }
+
+    @Benchmark
+    public byte[] fastjson2WriteRestDto() {
+        return JSON.toJSONBytes(restDto);
+    }
+
+    @Benchmark
+    public RestDto jacksonReadRestDto() throws IOException {
+        return objectMapper.readValue(restDtoJson, RestDto.class);
+    }
+
+    @Benchmark
+    public RestDto fastjson2ReadRestDto() {
+        return JSON.parseObject(restDtoJson, RestDto.class);
+    }
+
+    //===================================List<RestDto>========================================
+
+    @Benchmark
+    public byte[] jacksonWriteList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] fastjson2WriteList() {
+        return JSON.toJSONBytes(list);
+    }
+
+    @Benchmark
+    public List<RestDto> jacksonReadList() throws IOException {
+        return objectMapper.readValue(listJson, listType);
+    }
+
+    @Benchmark
+    public List<RestDto> fastjson2ReadList() {
+        return JSON.parseObject(listJson, LIST_TYPE);
+    }
+
+    //===================================Map<String, List<String>>========================================
+
+    @Benchmark
+    public byte[] jacksonWriteHeader() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(header);
+    }
+
+    @Benchmark
+    public byte[] fastjson2WriteHeader() {
+        return JSON.toJSONBytes(header);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> jacksonReadHeader() throws IOException {
+        return objectMapper.readValue(headerJson, headerType);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> fastjson2ReadHeader() {
+        return JSON.parseObject(headerJson, HEADER_TYPE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
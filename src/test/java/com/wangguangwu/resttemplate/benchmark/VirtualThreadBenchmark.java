@@ -0,0 +1,151 @@
+package com.wangguangwu.resttemplate.benchmark;
+
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 高并发下载、上传时 Tomcat 平台线程池与虚拟线程的对比
+ * <p>
+ * 每次操作同时发出 concurrency 个请求并等待全部完成，结果为每秒完成的批次数；
+ * 客户端也在虚拟线程中发请求（JVM 不支持时为同样数量的平台线程），连接池大小与并发数相同。
+ * virtualThreads=true 需要 JDK 21+，低版本 JDK 上服务端仍使用平台线程，两组结果应基本相同。
+ * 本机回环的下载、上传主要消耗 CPU，虚拟线程的收益在请求长时间阻塞（慢客户端、慢下游）而线程池耗尽时才明显，
+ * 单核机器上两组结果应接近
+ *
+ * @author wangguangwu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    private static final long FILE_SIZE = 256 * 1024;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param({"1000"})
+    int concurrency;
+
+    BenchmarkServer server;
+
+    PooledClientHttpRequestFactory requestFactory;
+
+    RestTemplate restTemplate;
+
+    ExecutorService executor;
+
+    HttpEntity<MultiValueMap<String, Object>> uploadRequest;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = BenchmarkServer.start("--rest.server.virtual-threads=" + virtualThreads,
+                "--server.tomcat.max-connections=" + Math.max(8192, concurrency),
+                "--server.tomcat.accept-count=" + concurrency);
+        server.createFile("bench.bin", FILE_SIZE);
+        RestClientProperties properties = new RestClientProperties();
+        properties.setMaxTotal(concurrency);
+        properties.setMaxPerRoute(concurrency);
+        requestFactory = new PooledClientHttpRequestFactory(properties);
+        restTemplate = new RestTemplate(requestFactory);
+        executor = ClientExecutors.newExecutor("virtual-thread-benchmark", concurrency, true);
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("file", new FileSystemResource(server.getFileDir().resolve("bench.bin")));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        uploadRequest = new HttpEntity<>(form, headers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        requestFactory.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public long download() throws Exception {
+        return concurrently(() -> {
+            Long size = restTemplate.execute(server.url("/rest/download?filename={filename}"), HttpMethod.GET, null,
+                    response -> drain(response.getBody()), "bench.bin");
+            if (size == null || size != FILE_SIZE) {
+                throw new IllegalStateException("下载长度不一致: " + size);
+            }
+            return size;
+        });
+    }
+
+    @Benchmark
+    public long upload() throws Exception {
+        return concurrently(() -> {
+            Map<?, ?> result = restTemplate.postForObject(server.url("/rest/upload"), uploadRequest, Map.class);
+            if (result == null) {
+                throw new IllegalStateException("响应数据为空");
+            }
+            return FILE_SIZE;
+        });
+    }
+
+    /**
+     * 同时发出 concurrency 个请求
+     *
+     * @return 收发的总字节数
+     */
+    private long concurrently(Callable<Long> call) throws InterruptedException, ExecutionException {
+        List<Future<Long>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(executor.submit(call));
+        }
+        long total = 0;
+        for (Future<Long> future : futures) {
+            total += future.get();
+        }
+        return total;
+    }
+
+    private static long drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VirtualThreadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -1,6 +1,29 @@
 package com.wangguangwu.resttemplate.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.wangguangwu.resttemplate.client.BatchCall;
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import com.wangguangwu.resttemplate.client.CompressionInterceptor;
+import com.wangguangwu.resttemplate.client.HttpCacheInterceptor;
+import com.wangguangwu.resttemplate.client.HttpCacheStore;
+import com.wangguangwu.resttemplate.client.JsonStreamCallbacks;
+import com.wangguangwu.resttemplate.client.ParallelRestTemplate;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.client.RangeDownloader;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.dto.BatchRequest;
+import com.wangguangwu.resttemplate.dto.BatchResponse;
+import com.wangguangwu.resttemplate.dto.BlobInfo;
+import com.wangguangwu.resttemplate.dto.ConnectionPoolStats;
+import com.wangguangwu.resttemplate.dto.HttpCacheStats;
 import com.wangguangwu.resttemplate.dto.RestDto;
+import com.wangguangwu.resttemplate.file.DigestingChannel;
+import com.wangguangwu.resttemplate.metrics.MetricsClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.metrics.MetricsRegistry;
+import com.wangguangwu.resttemplate.resilience.Deadline;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,19 +31,52 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.junit.jupiter.api.Assertions;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * @author wangguangwu
@@ -75,6 +131,392 @@ public class TestRestTemplate {
         System.out.println(responseBody);
     }
 
+    @Test
+    public void testGetNotModified() {
+        String url = "http://localhost:8080/rest/getList";
+        ResponseEntity<String> responseEntity = restTemplate.getForEntity(url, String.class);
+        String etag = responseEntity.getHeaders().getETag();
+        Assertions.assertNotNull(etag, "响应数据为空");
+        System.out.println("ETag: " + etag + ", Cache-Control: " + responseEntity.getHeaders().getCacheControl());
+        // 携带 If-None-Match 再次请求，数据未变化时返回 304，没有响应体
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> notModified = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        Assertions.assertNull(notModified.getBody());
+        System.out.println("响应状态码：" + notModified.getStatusCode());
+    }
+
+    @Test
+    public void testGetNotModifiedWithCompression() throws IOException {
+        // 200 个元素超过 server.compression.min-response-size；HttpURLConnection 不会自动解压，可以看到原始的 Content-Encoding
+        String url = "http://localhost:8080/rest/getList?count=200";
+        RestTemplate template = new RestTemplate(new SimpleClientHttpRequestFactory());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ResponseEntity<byte[]> responseEntity = template.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        String etag = responseEntity.getHeaders().getETag();
+        Assertions.assertNotNull(etag, "响应数据为空");
+        // 缓存的响应带弱 ETag，Tomcat 才会压缩
+        Assertions.assertTrue(etag.startsWith("W/"), etag);
+        Assertions.assertEquals("gzip", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertNotNull(responseEntity.getBody(), "响应数据为空");
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(responseEntity.getBody()))) {
+            List<RestDto> list = new ObjectMapper().readValue(inputStream, new TypeReference<List<RestDto>>() {
+            });
+            Assertions.assertEquals(200, list.size());
+        }
+        System.out.println("ETag: " + etag + ", 压缩后大小：" + responseEntity.getBody().length);
+        // 压缩后的响应仍然可以用 If-None-Match 得到 304
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<byte[]> notModified = template.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+    }
+
+    @Test
+    public void testCachedGet() throws IOException {
+        // 小于 16 字节的响应体保存在内存，更大的写入临时目录
+        Path diskDirectory = Files.createTempDirectory("http-cache");
+        HttpCacheInterceptor interceptor = new HttpCacheInterceptor(
+                new HttpCacheStore(1024 * 1024, 16, diskDirectory, 16 * 1024 * 1024));
+        restTemplate.getInterceptors().add(interceptor);
+        try {
+            // /rest/getList 带 max-age，第二次直接命中缓存
+            for (int i = 0; i < 2; i++) {
+                List<RestDto> response = restTemplate.exchange("http://localhost:8080/rest/getList", HttpMethod.GET,
+                        null, new ParameterizedTypeReference<List<RestDto>>() {
+                        }).getBody();
+                Assertions.assertNotNull(response, "响应数据为空");
+            }
+            // /rest/download 只有 ETag 和 Last-Modified，第二次发送条件请求，304 后使用缓存的响应体
+            for (int i = 0; i < 2; i++) {
+                String response = restTemplate.getForObject("http://localhost:8080/rest/download?filename={filename}",
+                        String.class, "test.txt");
+                Assertions.assertNotNull(response, "响应数据为空");
+            }
+            HttpCacheStats stats = interceptor.getStats();
+            Assertions.assertEquals(1, stats.getHits());
+            Assertions.assertEquals(1, stats.getNotModified());
+            System.out.println(stats);
+        } finally {
+            interceptor.getStore().clear();
+            Files.deleteIfExists(diskDirectory);
+        }
+    }
+
+    @Test
+    public void testCachedGetWithoutContentLength() throws IOException {
+        // 本地 HttpServer 以 chunked 返回 64KB，超过 16KB 的磁盘上限：停止写入磁盘并返回响应，不缓存；
+        // 服务端发出前一半后等待客户端拿到响应再发后一半，如果客户端先把响应体全部写入磁盘，会等到超时
+        byte[] content = new byte[64 * 1024];
+        new Random(1).nextBytes(content);
+        CountDownLatch received = new CountDownLatch(1);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chunked", exchange -> {
+            exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"chunked\"");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content, 0, content.length / 2);
+                out.flush();
+                try {
+                    timedOut.set(!received.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write(content, content.length / 2, content.length / 2);
+            }
+        });
+        server.start();
+        Path diskDirectory = Files.createTempDirectory("http-cache");
+        HttpCacheInterceptor interceptor = new HttpCacheInterceptor(
+                new HttpCacheStore(1024 * 1024, 16, diskDirectory, 16 * 1024));
+        restTemplate.getInterceptors().add(interceptor);
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/chunked";
+            byte[] response = restTemplate.execute(url, HttpMethod.GET, null, clientResponse -> {
+                received.countDown();
+                return StreamUtils.copyToByteArray(clientResponse.getBody());
+            });
+            Assertions.assertFalse(timedOut.get(), "响应体超过磁盘上限后仍在写入磁盘");
+            Assertions.assertArrayEquals(content, response);
+            Assertions.assertEquals(0, interceptor.getStore().size());
+            try (Stream<Path> files = Files.list(diskDirectory)) {
+                Assertions.assertEquals(0, files.count(), "未缓存的响应体文件没有删除");
+            }
+        } finally {
+            server.stop(0);
+            interceptor.getStore().clear();
+            Files.deleteIfExists(diskDirectory);
+        }
+    }
+
+    @Test
+    public void testCachedGetWithCompression() throws IOException {
+        // 本地 HttpServer 按 Accept-Encoding 返回 gzip 响应并带 Vary: Accept-Encoding；
+        // Accept-Encoding 由缓存之后的 CompressionInterceptor 添加，缓存按调用方发出的请求头比较 Vary，第二次命中缓存
+        byte[] content = "Hello World".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/vary", exchange -> {
+            requests.incrementAndGet();
+            String acceptEncoding = exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+            byte[] body = content;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                    out.write(content);
+                }
+                body = gzipped.toByteArray();
+                exchange.getResponseHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            exchange.getResponseHeaders().set(HttpHeaders.CACHE_CONTROL, "max-age=60");
+            exchange.getResponseHeaders().set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        HttpCacheInterceptor interceptor = new HttpCacheInterceptor(new HttpCacheStore(1024 * 1024, 1024, null, 0));
+        restTemplate.getInterceptors().add(interceptor);
+        restTemplate.getInterceptors().add(new CompressionInterceptor(-1));
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/vary";
+            for (int i = 0; i < 2; i++) {
+                Assertions.assertEquals("Hello World", restTemplate.getForObject(url, String.class));
+            }
+            Assertions.assertEquals(1, requests.get());
+            Assertions.assertEquals(1, interceptor.getStats().getHits());
+        } finally {
+            server.stop(0);
+            interceptor.getStore().clear();
+        }
+    }
+
+    @Test
+    public void testMetrics() throws IOException {
+        String url = "http://localhost:8080/rest/get/{id}/{name}";
+        // 客户端指标按 url 模板聚合，不会因为 id 不同而产生多个路由
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsClientHttpRequestFactory.instrument(restTemplate, registry);
+        for (int i = 0; i < 10; i++) {
+            RestDto response = restTemplate.getForObject(url, RestDto.class, i, "HelloWorld");
+            Assertions.assertNotNull(response, "响应数据为空");
+        }
+        StringWriter clientMetrics = new StringWriter();
+        registry.writePrometheus(clientMetrics);
+        Assertions.assertTrue(clientMetrics.toString().contains(
+                "rest_client_requests_total{method=\"GET\",route=\"" + url + "\"} 10"));
+        // 服务端指标
+        String serverMetrics = restTemplate.getForObject("http://localhost:8080/rest/metrics", String.class);
+        Assertions.assertNotNull(serverMetrics, "响应数据为空");
+        System.out.println(clientMetrics);
+        System.out.println(serverMetrics);
+    }
+
+    @Test
+    public void testMetricsWithStreamingRequest() throws Exception {
+        // 记录指标后请求体仍然流式发送：客户端写出约 40KB（超过 JsonGenerator 和连接的缓冲区）后等待服务端读到第一行再继续，
+        // 如果请求体先在内存中攒齐再发送，服务端读不到第一行，会等到超时
+        CountDownLatch firstLineRead = new CountDownLatch(1);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ndjson", exchange -> {
+            long lines = 0;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                while (reader.readLine() != null) {
+                    lines++;
+                    firstLineRead.countDown();
+                }
+            }
+            byte[] body = String.valueOf(lines).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        Iterator<RestDto> elements = new Iterator<RestDto>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == 1000) {
+                    try {
+                        timedOut.set(!firstLineRead.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return next < 2000;
+            }
+
+            @Override
+            public RestDto next() {
+                return new RestDto(next, "Hello World " + next++);
+            }
+        };
+        PooledClientHttpRequestFactory requestFactory = new PooledClientHttpRequestFactory(new RestClientProperties());
+        requestFactory.setBufferRequestBody(false);
+        restTemplate.setRequestFactory(requestFactory);
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsClientHttpRequestFactory.instrument(restTemplate, registry);
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/ndjson";
+            String lines = restTemplate.execute(url, HttpMethod.POST,
+                    JsonStreamCallbacks.ndjsonRequest(new ObjectMapper(), elements),
+                    response -> StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8));
+            Assertions.assertFalse(timedOut.get(), "请求体在内存中攒齐后才发送");
+            Assertions.assertEquals("2000", lines);
+            StringWriter clientMetrics = new StringWriter();
+            registry.writePrometheus(clientMetrics);
+            Assertions.assertTrue(clientMetrics.toString().contains(
+                    "rest_client_requests_total{method=\"POST\",route=\"" + url + "\"} 1"));
+            // 长度未知的请求体按实际写出的字节数统计
+            Assertions.assertTrue(registry.client(HttpMethod.POST, url).getBytesOut() > 0);
+        } finally {
+            server.stop(0);
+            requestFactory.destroy();
+        }
+    }
+
+    @Test
+    public void testPooledGet() throws Exception {
+        String url = "http://localhost:8080/rest/get/{id}/{name}";
+        // 使用连接池的 RestTemplate，多次请求复用同一个 keep-alive 连接
+        PooledClientHttpRequestFactory requestFactory = new PooledClientHttpRequestFactory(new RestClientProperties());
+        try {
+            RestTemplate pooledRestTemplate = new RestTemplate(requestFactory);
+            for (int i = 0; i < 10; i++) {
+                RestDto response = pooledRestTemplate.getForObject(url, RestDto.class, i, "HelloWorld");
+                Assertions.assertNotNull(response, "响应数据为空");
+            }
+            ConnectionPoolStats stats = requestFactory.getPoolStats();
+            Assertions.assertEquals(1, stats.getCreated(), "连接没有被复用");
+            System.out.println(stats);
+        } finally {
+            requestFactory.destroy();
+        }
+    }
+
+    @Test
+    public void testParallelGet() {
+        String url = "http://localhost:8080/rest/get/{id}/{name}";
+        // 1. 每个 id 对应一次请求，url 参数与 testGet3 相同
+        List<BatchCall<RestDto>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> urlVariables = new HashMap<>();
+            urlVariables.put("id", String.valueOf(i));
+            urlVariables.put("name", "HelloWorld");
+            calls.add(BatchCall.get(url, RestDto.class, urlVariables));
+        }
+        // 2. 最多 8 个请求同时执行，单个请求超时 5 秒，任意一个失败时取消整批
+        try (ParallelRestTemplate parallelRestTemplate = new ParallelRestTemplate(restTemplate,
+                ClientExecutors.newExecutor("test", 8, true), 8, Duration.ofSeconds(5))) {
+            List<CompletableFuture<RestDto>> futures = parallelRestTemplate.submit(calls);
+            for (int i = 0; i < futures.size(); i++) {
+                RestDto response = futures.get(i).join();
+                Assertions.assertEquals(i, response.getId(), "结果顺序不一致");
+            }
+            // 3. 按完成顺序处理结果
+            long count = parallelRestTemplate.stream(calls).peek(System.out::println).count();
+            Assertions.assertEquals(calls.size(), count);
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        String url = "http://localhost:8080/rest/batch";
+        // 1. 多个子请求（请求方式、路径、请求体），在服务端并行执行
+        List<BatchRequest> requests = new ArrayList<>();
+        requests.add(new BatchRequest("GET", "/rest/get/1/Hello", null, null));
+        requests.add(new BatchRequest("GET", "/rest/getList", null, null));
+        requests.add(new BatchRequest("POST", "/rest/postRequestBody", null,
+                new ObjectMapper().valueToTree(new RestDto(2, "World"))));
+        // 2. 一次往返拿到所有结果，顺序与请求一致
+        ResponseEntity<List<Map<String, Object>>> responseEntity = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                new HttpEntity<>(requests),
+                new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                }
+        );
+        List<Map<String, Object>> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Assertions.assertEquals(requests.size(), result.size());
+        System.out.println(result);
+    }
+
+    @Test
+    public void testBatchBinary() throws IOException {
+        String url = "http://localhost:8080/rest/batch";
+        // 二进制响应体按 Base64 编码返回，encoding 为 base64
+        List<BatchRequest> requests = Collections.singletonList(
+                new BatchRequest("GET", "/rest/download?filename=static/1.jpg", null, null));
+        ResponseEntity<List<Map<String, Object>>> responseEntity = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                new HttpEntity<>(requests),
+                new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                }
+        );
+        List<Map<String, Object>> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Map<String, Object> response = result.get(0);
+        Assertions.assertEquals(200, response.get("status"));
+        Assertions.assertEquals(BatchResponse.BASE64, response.get("encoding"));
+        byte[] expected = Files.readAllBytes(Paths.get("./src/main/resources/static/1.jpg"));
+        Assertions.assertArrayEquals(expected, Base64.getDecoder().decode((String) response.get("body")));
+    }
+
+    @Test
+    public void testBatchNested() {
+        String url = "http://localhost:8080/rest/batch";
+        // 编码过的路径同样映射到批量接口，嵌套的批量请求直接失败，不占用执行线程
+        JsonNode nested = new ObjectMapper().valueToTree(
+                Collections.singletonList(new BatchRequest("GET", "/rest/get/1/Hello", null, null)));
+        List<BatchRequest> requests = new ArrayList<>();
+        for (String path : new String[]{"/rest/batch", "/rest/%62atch", "/rest;x=1/batch"}) {
+            requests.add(new BatchRequest("POST", path, null, nested));
+        }
+        ResponseEntity<List<Map<String, Object>>> responseEntity = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                new HttpEntity<>(requests),
+                new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                }
+        );
+        List<Map<String, Object>> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Assertions.assertEquals(requests.size(), result.size());
+        for (Map<String, Object> response : result) {
+            Assertions.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.get("status"));
+        }
+    }
+
+    @Test
+    public void testBatchDeadline() {
+        String url = "http://localhost:8080/rest/batch";
+        // 子请求同样经过 DeadlineFilter，已经超过截止时间的子请求返回 504，其他子请求不受影响
+        Map<String, String> expired = Collections.singletonMap(Deadline.HEADER, "0");
+        List<BatchRequest> requests = new ArrayList<>();
+        requests.add(new BatchRequest("GET", "/rest/get/1/Hello", expired, null));
+        requests.add(new BatchRequest("GET", "/rest/get/2/World", null, null));
+        ResponseEntity<List<Map<String, Object>>> responseEntity = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                new HttpEntity<>(requests),
+                new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                }
+        );
+        List<Map<String, Object>> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Assertions.assertEquals(HttpStatus.GATEWAY_TIMEOUT.value(), result.get(0).get("status"));
+        Assertions.assertEquals(HttpStatus.OK.value(), result.get(1).get("status"));
+    }
+
     @Test
     public void testGetList() {
         String url = "http://localhost:8080/rest/getList";
@@ -127,6 +569,45 @@ public class TestRestTemplate {
         System.out.println(result);
     }
 
+    @Test
+    public void testDownload3() throws IOException {
+        String url = "http://localhost:8080/rest/download?filename={filename}";
+        /*
+         * 大文件分片并行下载
+         * 服务端支持 Range 请求，RangeDownloader 按字节区间把文件拆成多个分片并发下载，
+         * 每个分片直接写入预分配好的目标文件，中断后再次下载会从断点继续
+         */
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            RangeDownloader downloader = new RangeDownloader(restTemplate, executor, 4);
+            Path target = Files.createTempFile("download", ".txt");
+            downloader.download(url, target, "test.txt");
+            Assertions.assertTrue(Files.size(target) > 0, "响应数据为空");
+            System.out.println("文件数据:" + new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testZipDownload() {
+        String url = "http://localhost:8080/rest/download/zip?filename={filename}&filename={filename}&stored={stored}";
+        // 多个文件打包成一个 zip 下载，边下载边解压，stored=true 时不压缩
+        List<String> entries = restTemplate.execute(url, HttpMethod.GET, null, response -> {
+            List<String> names = new ArrayList<>();
+            try (ZipInputStream zip = new ZipInputStream(response.getBody())) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    names.add(entry.getName() + ": " + StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+                }
+            }
+            return names;
+        }, "test.txt", "static/hello.txt", true);
+        Assertions.assertNotNull(entries, "响应数据为空");
+        Assertions.assertEquals(2, entries.size());
+        System.out.println("文件数据:" + entries.get(0));
+    }
+
     @Test
     public void testHeader() {
         String url = "http://localhost:8080/rest/header";
@@ -276,6 +757,29 @@ public class TestRestTemplate {
         System.out.println(result);
     }
 
+    @Test
+    public void testStreamUpload() {
+        String url = "http://localhost:8080/rest/upload/stream";
+        // 1. 表单信息，可以同时上传多个文件
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource("./src/main/resources/static/1.jpg"));
+        body.add("file", new FileSystemResource("./src/main/resources/static/2.jpg"));
+        // 2. 请求头
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        // 3. 请求实体
+        RequestEntity<MultiValueMap<String, Object>> requestEntity = new RequestEntity<>(body, headers, HttpMethod.POST, URI.create(url));
+        // 4. 发送请求，服务端边读边写入磁盘，返回每个文件的大小和 sha256
+        ResponseEntity<List<Map<String, String>>> responseEntity = restTemplate.exchange(
+                requestEntity,
+                new ParameterizedTypeReference<List<Map<String, String>>>() {
+                }
+        );
+        List<Map<String, String>> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        System.out.println(result);
+    }
+
     @Test
     public void testComplexForm() {
         String url = "http://localhost:8080/rest/complexForm";
@@ -301,6 +805,33 @@ public class TestRestTemplate {
         System.out.println(result);
     }
 
+    @Test
+    public void testBlobUpload() throws IOException {
+        String url = "http://localhost:8080/rest/blobs/{sha256}";
+        // 1. 本地先计算文件的 sha256
+        byte[] content = Files.readAllBytes(Paths.get("./src/main/resources/static/2.jpg"));
+        String sha256 = DigestingChannel.toHex(DigestingChannel.sha256().digest(content));
+        // 2. 预检：服务端已有该内容时返回 200，不必上传
+        boolean exists;
+        try {
+            restTemplate.headForHeaders(url, sha256);
+            exists = true;
+        } catch (HttpClientErrorException.NotFound e) {
+            exists = false;
+        }
+        // 3. 上传请求体；内容已存在时服务端不读取请求体，只增加引用次数
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        BlobInfo blob = restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(content, headers), BlobInfo.class, sha256)
+                .getBody();
+        Assertions.assertNotNull(blob, "响应数据为空");
+        Assertions.assertEquals(sha256, blob.getSha256());
+        // 4. 按 sha256 下载
+        byte[] downloaded = restTemplate.getForObject("http://localhost:8080/rest/download?sha256={sha256}", byte[].class, sha256);
+        Assertions.assertArrayEquals(content, downloaded);
+        System.out.println("已存在: " + exists + ", " + blob);
+    }
+
     @Test
     public void testPostRequestBody() {
         String url = "http://localhost:8080/rest/postRequestBody";
@@ -331,5 +862,99 @@ public class TestRestTemplate {
         System.out.println(result);
     }
 
+    @Test
+    public void testCompressedPostForList() {
+        String url = "http://localhost:8080/rest/postForList";
+        // 请求体超过 2KB 时 gzip 压缩后发送，响应体由服务端 gzip 压缩、拦截器透明解压
+        restTemplate.getInterceptors().add(new CompressionInterceptor(2048));
+        List<RestDto> body = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            body.add(new RestDto(i, "Hello World " + i));
+        }
+        List<RestDto> result = restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(body),
+                new ParameterizedTypeReference<List<RestDto>>() {
+                }).getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Assertions.assertEquals(body.size(), result.size());
+        System.out.println(result.get(result.size() - 1));
+    }
+
+    @Test
+    public void testCompressedUpload() {
+        String url = "http://localhost:8080/rest/upload";
+        // multipart 请求体由容器在过滤器之前解析，拦截器不压缩，上传照常成功
+        restTemplate.getInterceptors().add(new CompressionInterceptor(0));
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource("./src/main/resources/static/2.jpg"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        ResponseEntity<Map<String, String>> responseEntity = restTemplate.exchange(url, HttpMethod.POST,
+                new HttpEntity<>(body, headers), new ParameterizedTypeReference<Map<String, String>>() {
+                });
+        Assertions.assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        System.out.println(responseEntity.getBody());
+    }
+
+    @Test
+    public void testBinaryPostForList() {
+        String url = "http://localhost:8080/rest/postForList";
+        // 请求体用 CBOR 编码，通过 Accept 要求服务端以 Smile 返回；RestTemplate 默认已注册这两种转换器
+        List<RestDto> body = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            body.add(new RestDto(i, "Hello World " + i));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("application", "cbor"));
+        headers.setAccept(Collections.singletonList(new MediaType("application", "x-jackson-smile")));
+        ResponseEntity<List<RestDto>> responseEntity = restTemplate.exchange(url, HttpMethod.POST,
+                new HttpEntity<>(body, headers), new ParameterizedTypeReference<List<RestDto>>() {
+                });
+        List<RestDto> result = responseEntity.getBody();
+        Assertions.assertNotNull(result, "响应数据为空");
+        Assertions.assertEquals(body, result);
+        System.out.println("响应类型: " + responseEntity.getHeaders().getContentType() + ", 元素个数: " + result.size());
+    }
+
+    @Test
+    public void testPostForListStream() {
+        String url = "http://localhost:8080/rest/postForList";
+        // 1. 关闭请求体缓冲，请求体边生成边发送
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        RestTemplate streamingRestTemplate = new RestTemplate(requestFactory);
+        ObjectMapper objectMapper = new ObjectMapper();
+        // 2. 请求体按 NDJSON 逐个写出，元素在需要时才生成，不会一次性放进内存
+        int size = 100_000;
+        Iterator<RestDto> elements = IntStream.range(0, size).mapToObj(i -> new RestDto(i, "Hello" + i)).iterator();
+        // 3. 响应体也是 NDJSON，逐个解析处理
+        AtomicLong sum = new AtomicLong();
+        Long count = streamingRestTemplate.execute(url,
+                HttpMethod.POST,
+                JsonStreamCallbacks.ndjsonRequest(objectMapper, elements),
+                JsonStreamCallbacks.forEach(objectMapper, RestDto.class, restDto -> sum.addAndGet(restDto.getId())));
+        Assertions.assertEquals(size, count);
+        Assertions.assertEquals((long) size * (size - 1) / 2, sum.get());
+        System.out.println("元素个数：" + count);
+    }
+
+    @Test
+    public void testPostForListStreamLargerThanSocketBuffers() {
+        String url = "http://localhost:8080/rest/postForList";
+        // RestTemplate 先发完请求体再读取响应；100 万个元素（约 35MB）远超 TCP 缓冲区，服务端边读边写回时双方会互相等待
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        RestTemplate streamingRestTemplate = new RestTemplate(requestFactory);
+        ObjectMapper objectMapper = new ObjectMapper();
+        int size = 1_000_000;
+        Iterator<RestDto> elements = IntStream.range(0, size).mapToObj(i -> new RestDto(i, "Hello World " + i)).iterator();
+        AtomicLong sum = new AtomicLong();
+        Long count = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(120), () -> streamingRestTemplate.execute(url,
+                HttpMethod.POST,
+                JsonStreamCallbacks.ndjsonRequest(objectMapper, elements),
+                JsonStreamCallbacks.forEach(objectMapper, RestDto.class, restDto -> sum.addAndGet(restDto.getId()))));
+        Assertions.assertEquals(size, count);
+        Assertions.assertEquals((long) size * (size - 1) / 2, sum.get());
+        System.out.println("元素个数：" + count);
+    }
 
 }
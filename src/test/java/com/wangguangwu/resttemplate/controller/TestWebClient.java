@@ -0,0 +1,200 @@
+package com.wangguangwu.resttemplate.controller;
+
+import com.wangguangwu.resttemplate.dto.RestDto;
+import com.wangguangwu.resttemplate.file.DigestingChannel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 使用 WebClient 调用 /rest 接口，servlet 模式和 reactive 模式（--spring.profiles.active=reactive）下结果应一致
+ *
+ * @author wangguangwu
+ */
+public class TestWebClient {
+
+    private static final ParameterizedTypeReference<Map<String, String>> STRING_MAP =
+            new ParameterizedTypeReference<Map<String, String>>() {
+            };
+
+    WebClient webClient;
+
+    @Before
+    public void init() {
+        webClient = WebClient.create("http://localhost:8080");
+    }
+
+    @Test
+    public void testGet() {
+        RestDto response = webClient.get().uri("/rest/get/{id}/{name}", 1, "HelloWorld")
+                .retrieve()
+                .bodyToMono(RestDto.class)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testGetList() {
+        List<RestDto> response = webClient.get().uri("/rest/getList")
+                .retrieve()
+                .bodyToFlux(RestDto.class)
+                .collectList()
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testDownload() {
+        // 按块接收响应体，不在内存中拼出整个文件
+        ResponseEntity<Flux<DataBuffer>> response = webClient.get().uri("/rest/download?filename={filename}", "test.txt")
+                .retrieve()
+                .toEntityFlux(DataBuffer.class)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        Long size = response.getBody()
+                .map(buffer -> {
+                    long length = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return length;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+        System.out.println("响应头: " + response.getHeaders());
+        System.out.println("文件大小(byte): " + size);
+    }
+
+    @Test
+    public void testHeader() {
+        Map<String, List<String>> response = webClient.get().uri("/rest/header")
+                .header("Authorization", "Bearer token")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, List<String>>>() {
+                })
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testPost1() {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("id", "1");
+        form.add("name", "HelloWorld");
+        RestDto response = webClient.post().uri("/rest/post1")
+                .body(BodyInserters.fromFormData(form))
+                .retrieve()
+                .bodyToMono(RestDto.class)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testUpload() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", file("upload.txt", "hello web client"));
+        Map<String, String> response = webClient.post().uri("/rest/upload")
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(STRING_MAP)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        // 内容保存到内容寻址存储中，返回内容的 sha256
+        Assertions.assertEquals(sha256("hello web client"), response.get("sha256"));
+        System.out.println(response);
+    }
+
+    @Test
+    public void testStreamUpload() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("description", "stream upload");
+        builder.part("file", file("web-client-upload.txt", "hello web client"));
+        List<Map<String, String>> response = webClient.post().uri("/rest/upload/stream")
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToFlux(STRING_MAP)
+                .collectList()
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testComplexForm() {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("name", "wangguangwu");
+        builder.part("headImage", file("head.png", "head"));
+        builder.part("idImageList", file("id1.png", "id1"));
+        builder.part("idImageList", file("id2.png", "id2"));
+        Map<String, String> response = webClient.post().uri("/rest/complexForm")
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(STRING_MAP)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        Assertions.assertEquals(sha256("head"), response.get("headImageSha256"));
+        Assertions.assertEquals("[" + sha256("id1") + ", " + sha256("id2") + "]", response.get("idImageSha256List"));
+        System.out.println(response);
+    }
+
+    @Test
+    public void testPostRequestBody() {
+        RestDto response = webClient.post().uri("/rest/postRequestBody")
+                .bodyValue(new RestDto(1, "Hello World"))
+                .retrieve()
+                .bodyToMono(RestDto.class)
+                .block();
+        Assertions.assertNotNull(response, "响应数据为空");
+        System.out.println(response);
+    }
+
+    @Test
+    public void testPostForListStream() {
+        // 以 NDJSON 逐个发送、逐个接收
+        Flux<RestDto> request = Flux.range(0, 1000).map(i -> new RestDto(i, "Hello World " + i));
+        Long count = webClient.post().uri("/rest/postForList")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .body(request, RestDto.class)
+                .retrieve()
+                .bodyToFlux(RestDto.class)
+                .count()
+                .block();
+        Assertions.assertNotNull(count, "响应数据为空");
+        System.out.println("元素个数: " + count);
+    }
+
+    //===================================私有方法========================================
+
+    private static String sha256(String content) {
+        return DigestingChannel.toHex(DigestingChannel.sha256().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ByteArrayResource file(String filename, String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.wangguangwu.resttemplate.loadtest;
+
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 压测场景：一次调用，失败时抛出异常
+ *
+ * @author wangguangwu
+ */
+@FunctionalInterface
+public interface LoadScenario {
+
+    void call(RestTemplate restTemplate) throws Exception;
+
+}
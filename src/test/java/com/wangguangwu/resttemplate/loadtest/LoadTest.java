@@ -0,0 +1,216 @@
+package com.wangguangwu.resttemplate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wangguangwu.resttemplate.benchmark.BenchmarkServer;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 基于 TestRestTemplate 中场景的压测
+ * <p>
+ * 随机端口启动应用，在临时目录生成上传、下载用的文件，按配置的并发数和时长依次压测每个场景，
+ * 打印吞吐量和耗时分位数，并把结果写入 json 文件。通过系统属性配置：
+ * <ul>
+ *     <li>load.scenarios：逗号分隔的场景名，默认全部</li>
+ *     <li>load.concurrency：并发数，默认 16</li>
+ *     <li>load.warmup / load.duration：预热、统计时长，默认 5s / 10s</li>
+ *     <li>load.download-size：下载文件大小（字节），默认 1MB</li>
+ *     <li>load.output：结果文件，默认 target/load-test-results.json</li>
+ *     <li>load.baseline：上一次的结果文件，吞吐量下降或 p99 上升超过 load.tolerance（默认 0.2）时以状态码 1 退出</li>
+ * </ul>
+ *
+ * @author wangguangwu
+ */
+public class LoadTest {
+
+    private static final int UPLOAD_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "5s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "10s"));
+        long downloadSize = Long.getLong("load.download-size", 1024 * 1024);
+        Path output = Paths.get(System.getProperty("load.output", "target/load-test-results.json"));
+        String baseline = System.getProperty("load.baseline");
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.2"));
+
+        RestClientProperties properties = new RestClientProperties();
+        properties.setMaxPerRoute(Math.max(properties.getMaxPerRoute(), concurrency));
+        properties.setMaxTotal(Math.max(properties.getMaxTotal(), concurrency));
+        List<LoadTestResult> results = new ArrayList<>();
+        try (BenchmarkServer server = BenchmarkServer.start(args)) {
+            PooledClientHttpRequestFactory requestFactory = new PooledClientHttpRequestFactory(properties);
+            try {
+                RestTemplate restTemplate = new RestTemplate(requestFactory);
+                Map<String, LoadScenario> scenarios = scenarios(server, downloadSize);
+                LoadTestRunner runner = new LoadTestRunner(restTemplate, concurrency, warmup, duration);
+                for (String name : selected(scenarios.keySet())) {
+                    LoadScenario scenario = scenarios.get(name);
+                    Assert.notNull(scenario, "未知的场景: " + name);
+                    // 先单独调用一次，场景本身有问题时直接失败，而不是压测出一堆错误
+                    scenario.call(restTemplate);
+                    LoadTestResult result = runner.run(name, scenario);
+                    results.add(result);
+                    print(result);
+                }
+            } finally {
+                requestFactory.destroy();
+            }
+        }
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        objectMapper.writeValue(output.toFile(), results);
+        System.out.println("结果已写入 " + output.toAbsolutePath());
+        if (baseline != null && !compare(objectMapper, Paths.get(baseline), results, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 场景，与 TestRestTemplate 中的同名测试一致
+     */
+    static Map<String, LoadScenario> scenarios(BenchmarkServer server, long downloadSize) throws IOException {
+        server.createFile("download.bin", downloadSize);
+        FileSystemResource upload = new FileSystemResource(server.createFile("upload.bin", UPLOAD_SIZE));
+        FileSystemResource headImage = new FileSystemResource(server.createFile("1.jpg", UPLOAD_SIZE));
+        FileSystemResource idImage1 = new FileSystemResource(server.createFile("2.jpg", UPLOAD_SIZE));
+        FileSystemResource idImage2 = new FileSystemResource(server.createFile("3.jpg", UPLOAD_SIZE));
+        List<RestDto> list = Arrays.asList(new RestDto(1, "Hello"), new RestDto(2, "World"));
+
+        Map<String, LoadScenario> scenarios = new LinkedHashMap<>();
+        scenarios.put("get", restTemplate -> Assert.notNull(
+                restTemplate.getForObject(server.url("/rest/get/{id}/{name}"), RestDto.class, 1, "HelloWorld"), "响应数据为空"));
+        scenarios.put("getList", restTemplate -> Assert.notNull(restTemplate.exchange(server.url("/rest/getList"),
+                HttpMethod.GET, null, new ParameterizedTypeReference<List<RestDto>>() {
+                }).getBody(), "响应数据为空"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("header1", "Hello");
+        headers.add("header2", "World");
+        headers.add("header3", "Hello World");
+        scenarios.put("header", restTemplate -> Assert.notNull(restTemplate.exchange(server.url("/rest/header"),
+                HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<Map<String, List<String>>>() {
+                }).getBody(), "响应数据为空"));
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("id", 1);
+        form.add("name", "Hello World");
+        scenarios.put("post", restTemplate -> Assert.notNull(
+                restTemplate.postForObject(server.url("/rest/post1"), form, RestDto.class), "响应数据为空"));
+        scenarios.put("postRequestBody", restTemplate -> Assert.notNull(restTemplate.postForObject(
+                server.url("/rest/postRequestBody"), new RestDto(1, "Hello World"), RestDto.class), "响应数据为空"));
+        scenarios.put("postForList", restTemplate -> Assert.notNull(restTemplate.exchange(server.url("/rest/postForList"),
+                HttpMethod.POST, new HttpEntity<>(list), new ParameterizedTypeReference<List<RestDto>>() {
+                }).getBody(), "响应数据为空"));
+        MultiValueMap<String, Object> uploadForm = new LinkedMultiValueMap<>();
+        uploadForm.add("file", upload);
+        scenarios.put("upload", restTemplate -> Assert.notNull(
+                restTemplate.postForObject(server.url("/rest/upload"), multipart(uploadForm), Map.class), "响应数据为空"));
+        MultiValueMap<String, Object> complexForm = new LinkedMultiValueMap<>();
+        complexForm.add("name", "hello");
+        complexForm.add("headImage", headImage);
+        complexForm.add("idImageList", idImage1);
+        complexForm.add("idImageList", idImage2);
+        scenarios.put("complexForm", restTemplate -> Assert.notNull(
+                restTemplate.postForObject(server.url("/rest/complexForm"), multipart(complexForm), Map.class), "响应数据为空"));
+        scenarios.put("download", restTemplate -> {
+            Long size = restTemplate.execute(server.url("/rest/download?filename={filename}"), HttpMethod.GET, null,
+                    response -> drain(response.getBody()), "download.bin");
+            Assert.isTrue(size != null && size == downloadSize, "文件大小不一致");
+        });
+        return scenarios;
+    }
+
+    //===================================私有方法========================================
+
+    private static Collection<String> selected(Collection<String> all) {
+        String scenarios = System.getProperty("load.scenarios");
+        if (scenarios == null || scenarios.trim().isEmpty()) {
+            return all;
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : scenarios.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    private static HttpEntity<MultiValueMap<String, Object>> multipart(MultiValueMap<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return new HttpEntity<>(body, headers);
+    }
+
+    private static long drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    static void print(LoadTestResult result) {
+        System.out.printf("%-16s %8.1f req/s  errors=%-6d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p999=%.3fms max=%.3fms%n",
+                result.getScenario(), result.getThroughput(), result.getErrors(), result.getMeanMillis(),
+                result.getP50Millis(), result.getP90Millis(), result.getP99Millis(), result.getP999Millis(),
+                result.getMaxMillis());
+    }
+
+    /**
+     * 与基线对比，吞吐量下降或 p99 上升超过 tolerance 视为退化
+     *
+     * @return 没有退化时返回 true
+     */
+    private static boolean compare(ObjectMapper objectMapper, Path baselineFile, List<LoadTestResult> results,
+                                   double tolerance) throws IOException {
+        LoadTestResult[] baseline = objectMapper.readValue(baselineFile.toFile(), LoadTestResult[].class);
+        Map<String, LoadTestResult> previous = new HashMap<>();
+        for (LoadTestResult result : baseline) {
+            previous.put(result.getScenario(), result);
+        }
+        boolean passed = true;
+        for (LoadTestResult current : results) {
+            LoadTestResult before = previous.get(current.getScenario());
+            if (before == null) {
+                continue;
+            }
+            if (current.getThroughput() < before.getThroughput() * (1 - tolerance)) {
+                System.out.printf("%s 吞吐量退化: %.1f -> %.1f req/s%n", current.getScenario(),
+                        before.getThroughput(), current.getThroughput());
+                passed = false;
+            }
+            if (current.getP99Millis() > before.getP99Millis() * (1 + tolerance)) {
+                System.out.printf("%s p99 退化: %.3f -> %.3f ms%n", current.getScenario(),
+                        before.getP99Millis(), current.getP99Millis());
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+}
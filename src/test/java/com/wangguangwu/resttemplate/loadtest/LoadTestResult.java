@@ -0,0 +1,62 @@
+package com.wangguangwu.resttemplate.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个场景的压测结果
+ *
+ * @author wangguangwu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadTestResult {
+
+    /**
+     * 场景名
+     */
+    private String scenario;
+
+    /**
+     * 并发数
+     */
+    private int concurrency;
+
+    /**
+     * 统计时长（秒）
+     */
+    private double durationSeconds;
+
+    /**
+     * 成功的请求数
+     */
+    private long requests;
+
+    /**
+     * 失败的请求数
+     */
+    private long errors;
+
+    /**
+     * 每秒成功的请求数
+     */
+    private double throughput;
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    private double meanMillis;
+
+    private double p50Millis;
+
+    private double p90Millis;
+
+    private double p99Millis;
+
+    private double p999Millis;
+
+    private double maxMillis;
+
+}
@@ -0,0 +1,91 @@
+package com.wangguangwu.resttemplate.loadtest;
+
+import com.wangguangwu.resttemplate.metrics.LatencyHistogram;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以固定并发数循环调用一个场景：先预热，再在统计时长内记录每次调用的耗时
+ *
+ * @author wangguangwu
+ */
+public class LoadTestRunner {
+
+    private final RestTemplate restTemplate;
+
+    private final int concurrency;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    public LoadTestRunner(RestTemplate restTemplate, int concurrency, Duration warmup, Duration duration) {
+        this.restTemplate = restTemplate;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public LoadTestResult run(String name, LoadScenario scenario) throws InterruptedException {
+        // 预热阶段的结果丢弃
+        execute(scenario, warmup, new LatencyHistogram(), new LongAdder());
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long elapsed = execute(scenario, duration, latency, errors);
+        double seconds = elapsed / 1_000_000_000.0;
+        long requests = latency.getCount();
+        return new LoadTestResult(name, concurrency, seconds, requests, errors.sum(),
+                requests / seconds,
+                requests == 0 ? 0 : millis(latency.getSum() / requests),
+                millis(latency.quantile(0.5)), millis(latency.quantile(0.9)), millis(latency.quantile(0.99)),
+                millis(latency.quantile(0.999)), millis(latency.quantile(1.0)));
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * @return 实际耗时，纳秒
+     */
+    private long execute(LoadScenario scenario, Duration duration, LatencyHistogram latency, LongAdder errors)
+            throws InterruptedException {
+        if (duration.isZero()) {
+            return 0;
+        }
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Thread> threads = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long callStart = System.nanoTime();
+                        try {
+                            scenario.call(restTemplate);
+                            latency.record(System.nanoTime() - callStart);
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-test-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.wangguangwu.resttemplate.loadtest;
+
+import com.wangguangwu.resttemplate.benchmark.BenchmarkServer;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import com.wangguangwu.resttemplate.dto.RestDto;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢客户端压测：大量连接以很低的速率下载、上传文件，同时测量 /rest/get 的耗时
+ * <p>
+ * servlet 模式下每个慢连接占用一个 Tomcat 工作线程，线程耗尽后普通请求只能排队；
+ * reactive 模式（传入 --spring.profiles.active=reactive）下慢连接只占用连接，/rest/get 的耗时应基本不受影响。
+ * 先在没有慢客户端时测一次 /rest/get 作为对照，再在慢客户端持续运行时测一次。通过系统属性配置：
+ * <ul>
+ *     <li>slow.clients：慢客户端个数，一半下载一半上传，默认 2000</li>
+ *     <li>slow.rate：每个慢客户端每秒收发的字节数，默认 16KB</li>
+ *     <li>slow.file-size：下载、上传的文件大小（字节），默认 1MB</li>
+ *     <li>slow.concurrency：测量 /rest/get 的并发数，默认 8</li>
+ *     <li>slow.ramp-up / slow.duration：慢客户端建立连接的等待时间、测量时长，默认 10s / 20s</li>
+ * </ul>
+ *
+ * @author wangguangwu
+ */
+public class SlowClientLoadTest {
+
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("slow.clients", 2000);
+        int rate = Integer.getInteger("slow.rate", 16 * 1024);
+        long fileSize = Long.getLong("slow.file-size", 1024 * 1024);
+        int concurrency = Integer.getInteger("slow.concurrency", 8);
+        Duration rampUp = DurationStyle.detectAndParse(System.getProperty("slow.ramp-up", "10s"));
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("slow.duration", "20s"));
+
+        RestClientProperties properties = new RestClientProperties();
+        properties.setMaxPerRoute(Math.max(properties.getMaxPerRoute(), concurrency));
+        properties.setMaxTotal(Math.max(properties.getMaxTotal(), concurrency));
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("slow-client")
+                .maxConnections(clients)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try (BenchmarkServer server = BenchmarkServer.start(args)) {
+            server.createFile("slow.bin", fileSize);
+            PooledClientHttpRequestFactory requestFactory = new PooledClientHttpRequestFactory(properties);
+            try {
+                LoadScenario get = restTemplate -> Assert.notNull(
+                        restTemplate.getForObject(server.url("/rest/get/{id}/{name}"), RestDto.class, 1, "HelloWorld"), "响应数据为空");
+                LoadTestRunner runner = new LoadTestRunner(new RestTemplate(requestFactory),
+                        concurrency, Duration.ofSeconds(2), duration);
+                LoadTest.print(runner.run("get", get));
+
+                WebClient webClient = WebClient.builder()
+                        .baseUrl(server.url(""))
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                        .build();
+                LongAdder completed = new LongAdder();
+                LongAdder errors = new LongAdder();
+                List<Disposable> slowClients = new ArrayList<>(clients);
+                for (int i = 0; i < clients; i++) {
+                    Mono<Long> call = i % 2 == 0 ? slowDownload(webClient, rate) : slowUpload(webClient, rate, fileSize);
+                    // 错开启动时间，避免所有连接同时建立
+                    long delay = ThreadLocalRandom.current().nextLong(Math.max(1, rampUp.toMillis() / 2));
+                    slowClients.add(Mono.delay(Duration.ofMillis(delay))
+                            .thenMany(call.doOnSuccess(size -> completed.increment()).doOnError(e -> errors.increment())
+                                    .onErrorResume(e -> Mono.empty()).repeat())
+                            .subscribe());
+                }
+                Thread.sleep(rampUp.toMillis());
+                LoadTest.print(runner.run("get+slow", get));
+                System.out.printf("慢客户端 %d 个，完成 %d 次，出错 %d 次%n", clients, completed.sum(), errors.sum());
+                slowClients.forEach(Disposable::dispose);
+            } finally {
+                requestFactory.destroy();
+            }
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+
+    //===================================私有方法========================================
+
+    /**
+     * 按 rate 限速读取响应体：每次只请求一块数据，读完后等待相应的时间，客户端不读时 TCP 窗口被填满，服务端写不出去
+     */
+    private static Mono<Long> slowDownload(WebClient webClient, int rate) {
+        return webClient.get().uri("/rest/download?filename=slow.bin")
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .concatMap(buffer -> {
+                    long size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return Mono.delay(pause(size, rate)).thenReturn(size);
+                }, 1)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * 按 rate 限速发送 multipart 请求体，每 CHUNK_SIZE 字节等待一次
+     */
+    private static Mono<Long> slowUpload(WebClient webClient, int rate, long fileSize) {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        Flux<DataBuffer> content = Flux.interval(pause(CHUNK_SIZE, rate))
+                .take((fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.asyncPart("file", content, DataBuffer.class)
+                .filename("slow.bin")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+        return webClient.post().uri("/rest/upload")
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .retrieve()
+                .bodyToMono(String.class)
+                .thenReturn(fileSize);
+    }
+
+    private static Duration pause(long size, int rate) {
+        return Duration.ofNanos(size * 1_000_000_000L / rate);
+    }
+
+}
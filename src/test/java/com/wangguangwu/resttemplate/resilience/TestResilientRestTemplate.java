@@ -0,0 +1,172 @@
+package com.wangguangwu.resttemplate.resilience;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wangguangwu.resttemplate.client.ClientExecutors;
+import com.wangguangwu.resttemplate.client.PooledClientHttpRequestFactory;
+import com.wangguangwu.resttemplate.config.RestClientProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ResilientRestTemplate 的对冲请求、截止时间、重试和熔断，下游为本地的 HttpServer，不依赖 8080 端口上的服务
+ *
+ * @author wangguangwu
+ */
+public class TestResilientRestTemplate {
+
+    HttpServer server;
+
+    ExecutorService serverExecutor;
+
+    PooledClientHttpRequestFactory requestFactory;
+
+    RestClientProperties.Resilience properties;
+
+    @Before
+    public void init() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.start();
+        RestClientProperties clientProperties = new RestClientProperties();
+        requestFactory = new PooledClientHttpRequestFactory(clientProperties);
+        properties = clientProperties.getResilience();
+        properties.setBackoff(Duration.ofMillis(10));
+    }
+
+    @After
+    public void destroy() throws Exception {
+        requestFactory.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testHedge() {
+        // 第一个请求卡住 3 秒，对冲请求立即返回
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/hedge", exchange -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(3000);
+            }
+            respond(exchange, 200, "hedged");
+        });
+        properties.setHedgeDelay(Duration.ofMillis(50));
+        try (ResilientRestTemplate restTemplate = resilientRestTemplate()) {
+            long start = System.nanoTime();
+            ResponseEntity<String> response = restTemplate.exchange(url("/hedge"), HttpMethod.GET, null, String.class);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Assertions.assertEquals("hedged", response.getBody());
+            Assertions.assertTrue(millis < 2000, "对冲请求未生效: " + millis + "ms");
+            Assertions.assertEquals(1, restTemplate.getHedges());
+            System.out.println("耗时(ms): " + millis + ", 对冲次数: " + restTemplate.getHedges());
+        }
+    }
+
+    @Test
+    public void testDeadline() {
+        AtomicReference<String> timeoutHeader = new AtomicReference<>();
+        server.createContext("/slow", exchange -> {
+            timeoutHeader.set(exchange.getRequestHeaders().getFirst(Deadline.HEADER));
+            sleep(3000);
+            respond(exchange, 200, "slow");
+        });
+        properties.setTimeout(Duration.ofMillis(300));
+        properties.setHedging(false);
+        try (ResilientRestTemplate restTemplate = resilientRestTemplate()) {
+            long start = System.nanoTime();
+            Assertions.assertThrows(DeadlineExceededException.class,
+                    () -> restTemplate.exchange(url("/slow"), HttpMethod.GET, null, String.class));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Assertions.assertTrue(millis < 1500, "未按截止时间结束: " + millis + "ms");
+            Assertions.assertNotNull(timeoutHeader.get(), "下游未收到 " + Deadline.HEADER);
+            System.out.println("耗时(ms): " + millis + ", " + Deadline.HEADER + ": " + timeoutHeader.get());
+        }
+    }
+
+    @Test
+    public void testRetry() {
+        // 前两次返回 503，第三次成功
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/flaky", exchange -> {
+            if (calls.incrementAndGet() <= 2) {
+                respond(exchange, 503, "unavailable");
+            } else {
+                respond(exchange, 200, "ok");
+            }
+        });
+        try (ResilientRestTemplate restTemplate = resilientRestTemplate()) {
+            ResponseEntity<String> response = restTemplate.exchange(url("/flaky"), HttpMethod.GET, null, String.class);
+            Assertions.assertEquals("ok", response.getBody());
+            Assertions.assertEquals(2, restTemplate.getRetries());
+            System.out.println("调用次数: " + calls.get() + ", 重试次数: " + restTemplate.getRetries());
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/broken", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 500, "broken");
+        });
+        properties.setMinimumCalls(5);
+        properties.setOpenDuration(Duration.ofMinutes(1));
+        try (ResilientRestTemplate restTemplate = resilientRestTemplate()) {
+            for (int i = 0; i < 5; i++) {
+                Assertions.assertThrows(RuntimeException.class,
+                        () -> restTemplate.exchange(url("/broken"), HttpMethod.GET, null, String.class));
+            }
+            Assertions.assertThrows(CircuitBreakerOpenException.class,
+                    () -> restTemplate.exchange(url("/broken"), HttpMethod.GET, null, String.class));
+            Assertions.assertEquals(5, calls.get());
+            Assertions.assertEquals(CircuitBreaker.State.OPEN,
+                    restTemplate.getCircuitBreakerState("localhost:" + server.getAddress().getPort()));
+            System.out.println("下游调用次数: " + calls.get() + ", 拒绝次数: " + restTemplate.getRejected());
+        }
+    }
+
+    //===================================私有方法========================================
+
+    private ResilientRestTemplate resilientRestTemplate() {
+        return new ResilientRestTemplate(new RestTemplate(requestFactory),
+                ClientExecutors.newExecutor("test-resilient-rest", 4, true), properties);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}